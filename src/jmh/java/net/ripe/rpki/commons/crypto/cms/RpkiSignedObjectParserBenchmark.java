@@ -0,0 +1,92 @@
+package net.ripe.rpki.commons.crypto.cms;
+
+import com.google.common.io.Files;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.rpki.commons.crypto.cms.aspa.AspaCms;
+import net.ripe.rpki.commons.crypto.cms.aspa.AspaCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsing of the signed objects that make up the bulk of an RPKI repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RpkiSignedObjectParserBenchmark {
+
+    private byte[] encodedRoa;
+    private byte[] encodedLargeRoa;
+    private byte[] encodedManifest;
+    private byte[] encodedAspa;
+
+    @Setup
+    public void setup() throws IOException {
+        encodedRoa = Files.toByteArray(new File("src/test/resources/interop/misc-objects/6C76EDB2225D11E286C4BD8F7A2F2747.roa"));
+        encodedManifest = Files.toByteArray(new File("src/test/resources/conformance/root/root.mft"));
+        encodedAspa = Files.toByteArray(new File("src/test/resources/conformance/root/AS211321.asa"));
+
+        List<RoaPrefix> prefixes = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i) {
+            prefixes.add(new RoaPrefix(IpRange.prefix(new Ipv4Address(0x0a000000L + ((long) i << 8)), 24), 24));
+        }
+        encodedLargeRoa = RoaCmsTest.createRoaCms(prefixes).getEncoded();
+    }
+
+    @Benchmark
+    public RoaCms parseRoa() {
+        RoaCmsParser parser = new RoaCmsParser();
+        parser.parse("roa.roa", encodedRoa);
+        return parser.getRoaCms();
+    }
+
+    @Benchmark
+    public RoaCms parseLargeRoa() {
+        RoaCmsParser parser = new RoaCmsParser();
+        parser.parse("large.roa", encodedLargeRoa);
+        return parser.getRoaCms();
+    }
+
+    @Benchmark
+    public boolean parseRoaVerdictOnly() {
+        ValidationResult result = ValidationResult.withLocation("roa.roa").withVerdictOnly();
+        new RoaCmsParser().parse(result, encodedRoa);
+        return result.hasFailures();
+    }
+
+    @Benchmark
+    public ManifestCms parseManifest() {
+        ManifestCmsParser parser = new ManifestCmsParser();
+        parser.parse("root.mft", encodedManifest);
+        return parser.getManifestCms();
+    }
+
+    @Benchmark
+    public AspaCms parseAspa() {
+        AspaCmsParser parser = new AspaCmsParser();
+        parser.parse("aspa.asa", encodedAspa);
+        return parser.getAspa();
+    }
+}
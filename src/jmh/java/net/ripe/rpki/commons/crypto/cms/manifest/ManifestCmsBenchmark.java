@@ -0,0 +1,92 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsTest.MANIFEST_KEY_PAIR;
+import static net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsTest.getRootManifestBuilder;
+
+/**
+ * Verification of the files of a manifest with 1000 entries, the size of a large CA, on local disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ManifestCmsBenchmark {
+
+    private static final int FILE_COUNT = 1000;
+
+    private Path directory;
+    private ManifestCms manifest;
+    private Map<String, ManifestFileSource> sources;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(22);
+        directory = Files.createTempDirectory("manifest");
+        ManifestCmsBuilder builder = getRootManifestBuilder();
+        sources = new HashMap<>();
+        for (int i = 0; i < FILE_COUNT; ++i) {
+            // Typical sizes of ROAs and certificates.
+            byte[] content = new byte[1500 + random.nextInt(1000)];
+            random.nextBytes(content);
+            String name = "file" + i + ".roa";
+            builder.addFile(name, content);
+            Path file = directory.resolve(name);
+            Files.write(file, content);
+            sources.put(name, ManifestFileSource.of(file));
+        }
+        manifest = builder.build(MANIFEST_KEY_PAIR.getPrivate());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    public int verifyFileContents() throws IOException {
+        int matches = 0;
+        for (String name : manifest.getFileNames()) {
+            if (manifest.verifyFileContents(name, Files.readAllBytes(directory.resolve(name)))) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int verifyFile() throws IOException {
+        int matches = 0;
+        for (String name : manifest.getFileNames()) {
+            if (manifest.verifyFile(name, directory.resolve(name))) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public Map<String, ManifestFileStatus> verifyFiles() {
+        return manifest.verifyFiles(sources, ForkJoinPool.commonPool());
+    }
+}
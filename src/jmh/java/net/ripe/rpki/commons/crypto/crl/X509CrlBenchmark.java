@@ -0,0 +1,112 @@
+package net.ripe.rpki.commons.crypto.crl;
+
+import com.google.common.io.Files;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.TEST_KEY_PAIR;
+import static net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest.createSelfSignedEeCertificateBuilder;
+
+/**
+ * Parsing of CRLs and revocation checks against CRLs of increasing size. The small CRL comes from the
+ * conformance test suite, the large ones are generated with the given number of revoked serials.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class X509CrlBenchmark {
+
+    @Param({"10", "10000"})
+    public int revokedEntries;
+
+    private byte[] encodedConformanceCrl;
+    private byte[] encodedCrl;
+    private X509Crl crl;
+    private X509Certificate revokedCertificate;
+    private X509Certificate validCertificate;
+
+    @Setup
+    public void setup() throws IOException {
+        encodedConformanceCrl = Files.toByteArray(new File("src/test/resources/conformance/root/root.crl"));
+
+        X500Principal issuer = new X500Principal("CN=issuer");
+        X509CrlBuilder builder = X509CrlTest.getCrlBuilder().withIssuerDN(issuer);
+        DateTime revocationTime = builder.getThisUpdateTime().minusDays(1);
+        for (int i = 0; i < revokedEntries; ++i) {
+            builder.addEntry(BigInteger.valueOf(2L * i + 1), revocationTime);
+        }
+        crl = builder.build(TEST_KEY_PAIR.getPrivate());
+        encodedCrl = crl.getEncoded();
+
+        revokedCertificate = createCertificate(issuer, BigInteger.valueOf(2L * (revokedEntries / 2) + 1));
+        validCertificate = createCertificate(issuer, BigInteger.valueOf(2L * revokedEntries));
+    }
+
+    private static X509Certificate createCertificate(X500Principal issuer, BigInteger serial) {
+        return createSelfSignedEeCertificateBuilder()
+                .withIssuerDN(issuer)
+                .withSerial(serial)
+                .withResources(IpResourceSet.parse("10.0.0.0/8"))
+                .build()
+                .getCertificate();
+    }
+
+    @Benchmark
+    public X509Crl parseConformanceCrl() {
+        return X509Crl.parseDerEncoded(encodedConformanceCrl, ValidationResult.withLocation("root.crl"));
+    }
+
+    @Benchmark
+    public X509Crl parseGeneratedCrl() {
+        return X509Crl.parseDerEncoded(encodedCrl, ValidationResult.withLocation("generated.crl"));
+    }
+
+    /**
+     * Reading the header fields needed for CRL validation, without decoding the revoked certificates.
+     */
+    @Benchmark
+    public DateTime readHeader() {
+        X509CrlDerReader reader = new X509CrlDerReader(encodedCrl);
+        reader.getNumber();
+        return reader.getNextUpdateTime();
+    }
+
+    /**
+     * Verifying the same CRL with the same key, as done for every object issued by a CA.
+     */
+    @Benchmark
+    public X509Crl verifyRepeatedly() throws SignatureException {
+        crl.verify(TEST_KEY_PAIR.getPublic());
+        return crl;
+    }
+
+    @Benchmark
+    public boolean isRevokedHit() {
+        return crl.isRevoked(revokedCertificate);
+    }
+
+    @Benchmark
+    public boolean isRevokedMiss() {
+        return crl.isRevoked(validCertificate);
+    }
+}
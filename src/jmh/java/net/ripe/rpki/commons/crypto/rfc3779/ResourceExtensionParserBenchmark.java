@@ -0,0 +1,50 @@
+package net.ripe.rpki.commons.crypto.rfc3779;
+
+import com.google.common.io.Files;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.SortedMap;
+
+/**
+ * Decoding of the RFC 3779 IP address and AS identifier extensions of a resource certificate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResourceExtensionParserBenchmark {
+
+    private byte[] ipAddressBlocks;
+    private byte[] asIdentifiers;
+
+    @Setup
+    public void setup() throws IOException {
+        X509Certificate certificate = X509CertificateParser.parseX509Certificate(Files.toByteArray(new File("src/test/resources/conformance/root.cer")));
+        ipAddressBlocks = certificate.getExtensionValue(ResourceExtensionEncoder.OID_IP_ADDRESS_BLOCKS.getId());
+        asIdentifiers = certificate.getExtensionValue(ResourceExtensionEncoder.OID_AUTONOMOUS_SYS_IDS.getId());
+    }
+
+    @Benchmark
+    public SortedMap<AddressFamily, IpResourceSet> parseIpAddressBlocks() {
+        return new ResourceExtensionParser().parseIpAddressBlocks(ipAddressBlocks);
+    }
+
+    @Benchmark
+    public IpResourceSet parseAsIdentifiers() {
+        return new ResourceExtensionParser().parseAsIdentifiers(asIdentifiers);
+    }
+}
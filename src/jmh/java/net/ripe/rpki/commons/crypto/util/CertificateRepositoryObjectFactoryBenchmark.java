@@ -0,0 +1,60 @@
+package net.ripe.rpki.commons.crypto.util;
+
+import com.google.common.io.Files;
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parsing a batch of repository objects one by one and in parallel on the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CertificateRepositoryObjectFactoryBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final Map<String, byte[]> encodedObjects = new LinkedHashMap<>();
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] encodedRoa = Files.toByteArray(new File("src/test/resources/interop/misc-objects/6C76EDB2225D11E286C4BD8F7A2F2747.roa"));
+        byte[] encodedCrl = Files.toByteArray(new File("src/test/resources/conformance/root/root.crl"));
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            encodedObjects.put(i + (i % 10 == 0 ? ".crl" : ".roa"), i % 10 == 0 ? encodedCrl : encodedRoa);
+        }
+    }
+
+    @Benchmark
+    public ValidationResult parseOneByOne() {
+        ValidationResult result = ValidationResult.withLocation("batch").withCompactStorage();
+        for (Map.Entry<String, byte[]> entry : encodedObjects.entrySet()) {
+            CertificateRepositoryObjectFactory.createCertificateRepositoryObject(entry.getValue(), result.setLocation(new ValidationLocation(entry.getKey())));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, CertificateRepositoryObject> parseBatch() {
+        ValidationResult result = ValidationResult.withLocation("batch").withCompactStorage();
+        return CertificateRepositoryObjectFactory.createCertificateRepositoryObjects(encodedObjects, result, ForkJoinPool.commonPool());
+    }
+}
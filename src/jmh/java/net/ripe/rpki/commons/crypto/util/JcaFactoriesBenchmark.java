@@ -0,0 +1,86 @@
+package net.ripe.rpki.commons.crypto.util;
+
+import com.google.common.io.Files;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.cert.CRL;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-object cost of the certificate, CRL and public key decoding under contention, comparing the cached
+ * {@link JcaFactories} instances with looking up a new factory for every object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JcaFactoriesBenchmark {
+
+    private byte[] encodedCertificate;
+    private byte[] encodedCrl;
+    private byte[] encodedPublicKey;
+
+    @Setup
+    public void setup() throws IOException {
+        encodedCertificate = Files.toByteArray(new File("src/test/resources/conformance/root.cer"));
+        encodedCrl = Files.toByteArray(new File("src/test/resources/conformance/root/root.crl"));
+        encodedPublicKey = X509CertificateParser.parseX509Certificate(encodedCertificate).getPublicKey().getEncoded();
+    }
+
+    @Benchmark
+    public X509Certificate parseCertificateCachedFactory() {
+        return X509CertificateParser.parseX509Certificate(encodedCertificate);
+    }
+
+    @Benchmark
+    public Certificate parseCertificateNewFactory() throws GeneralSecurityException {
+        return CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(encodedCertificate));
+    }
+
+    @Benchmark
+    public X509Crl parseCrlCachedFactory() {
+        X509Crl crl = new X509Crl(encodedCrl);
+        crl.getCrl();
+        return crl;
+    }
+
+    @Benchmark
+    public CRL parseCrlNewFactory() throws GeneralSecurityException {
+        return CertificateFactory.getInstance("X.509").generateCRL(new ByteArrayInputStream(encodedCrl));
+    }
+
+    @Benchmark
+    public PublicKey decodePublicKeyCachedFactory() {
+        return KeyPairFactory.decodePublicKey(encodedPublicKey);
+    }
+
+    @Benchmark
+    public PublicKey decodePublicKeyNewFactory() throws GeneralSecurityException {
+        return KeyFactory.getInstance(KeyPairFactory.ALGORITHM).generatePublic(new X509EncodedKeySpec(encodedPublicKey));
+    }
+}
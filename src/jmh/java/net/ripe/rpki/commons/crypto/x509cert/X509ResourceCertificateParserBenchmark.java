@@ -0,0 +1,37 @@
+package net.ripe.rpki.commons.crypto.x509cert;
+
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class X509ResourceCertificateParserBenchmark {
+
+    private byte[] encodedCaCertificate;
+
+    @Setup
+    public void setup() throws IOException {
+        encodedCaCertificate = Files.toByteArray(new File("src/test/resources/conformance/root.cer"));
+    }
+
+    @Benchmark
+    public X509ResourceCertificate parseCaCertificate() {
+        X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
+        parser.parse("root.cer", encodedCaCertificate);
+        return parser.getCertificate();
+    }
+}
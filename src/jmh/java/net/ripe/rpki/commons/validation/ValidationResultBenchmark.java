@@ -0,0 +1,70 @@
+package net.ripe.rpki.commons.validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+
+/**
+ * Records the checks of a repository walk (a number of locations with the typical number of passed checks and
+ * an occasional warning) in the default and the compact storage mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ValidationResultBenchmark {
+
+    private static final String[] PASSED_CHECKS = {
+        ValidationString.CMS_DATA_PARSING, ValidationString.CMS_CONTENT_TYPE, ValidationString.CMS_SIGNED_DATA_VERSION,
+        ValidationString.GET_CERTS_AND_CRLS, ValidationString.ONLY_ONE_EE_CERT_ALLOWED, ValidationString.CERT_IS_X509CERT,
+        ValidationString.CERTIFICATE_PARSED, ValidationString.DECODE_CONTENT, ValidationString.SIGNATURE_VERIFICATION,
+        ValidationString.NOT_VALID_BEFORE, ValidationString.NOT_VALID_AFTER, ValidationString.SIGNATURE_VALID,
+        ValidationString.RESOURCE_RANGE,
+    };
+
+    @Param({"1000"})
+    public int locationCount;
+
+    private ValidationLocation[] locations;
+
+    @Setup
+    public void setup() {
+        locations = new ValidationLocation[locationCount];
+        for (int i = 0; i < locationCount; ++i) {
+            locations[i] = new ValidationLocation(URI.create("rsync://example.net/repository/object-" + i + ".roa"));
+        }
+    }
+
+    @Benchmark
+    public ValidationResult recordDefault() {
+        return record(ValidationResult.withLocation(locations[0]));
+    }
+
+    @Benchmark
+    public ValidationResult recordCompact() {
+        return record(ValidationResult.withLocation(locations[0]).withCompactStorage());
+    }
+
+    private ValidationResult record(ValidationResult result) {
+        for (int i = 0; i < locations.length; ++i) {
+            result.setLocation(locations[i]);
+            for (String check : PASSED_CHECKS) {
+                result.rejectIfFalse(true, check);
+            }
+            if (i % 100 == 0) {
+                result.warn(ValidationString.ROA_CONTENT_STRUCTURE, "warning");
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package net.ripe.rpki.commons.validation.aspa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.rpki.commons.crypto.cms.aspa.ProviderAS;
+import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ASPA verification of AS paths against a generated hierarchy of 10000 customer ASes, each with one to three
+ * providers among the lower numbered ASes. Most paths follow customer to provider links, some make a random hop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AspaVerifierBenchmark {
+
+    private static final int CUSTOMER_COUNT = 10000;
+    private static final int PATH_COUNT = 1 << 14;
+
+    private AspaVerifier verifier;
+    private int[][] asPaths;
+    private List<int[]> asPathList;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(16);
+        Map<Asn, List<ProviderAS>> providersByCustomer = new HashMap<>();
+        int[][] providers = new int[CUSTOMER_COUNT + 1][];
+        for (int customer = 2; customer <= CUSTOMER_COUNT; ++customer) {
+            providers[customer] = new int[1 + random.nextInt(3)];
+            List<ProviderAS> providerSet = new ArrayList<>();
+            for (int i = 0; i < providers[customer].length; ++i) {
+                providers[customer][i] = 1 + random.nextInt(customer - 1);
+                providerSet.add(new ProviderAS(new Asn(providers[customer][i]), Optional.empty()));
+            }
+            providersByCustomer.put(new Asn(customer), providerSet);
+        }
+        verifier = AspaVerifier.of(providersByCustomer);
+
+        asPaths = new int[PATH_COUNT][];
+        for (int i = 0; i < PATH_COUNT; ++i) {
+            int[] path = new int[2 + random.nextInt(6)];
+            int as = 1 + random.nextInt(CUSTOMER_COUNT);
+            for (int j = path.length - 1; j >= 0; --j) {
+                path[j] = as;
+                if (as > 1 && as <= CUSTOMER_COUNT && random.nextInt(10) > 0) {
+                    as = providers[as][random.nextInt(providers[as].length)];
+                } else {
+                    as = 1 + random.nextInt(CUSTOMER_COUNT + 1000);
+                }
+            }
+            asPaths[i] = path;
+        }
+        asPathList = new ArrayList<>();
+        for (int[] path : asPaths) {
+            asPathList.add(path);
+        }
+    }
+
+    @Benchmark
+    public AsPathValidityState verifyUpstream() {
+        return verifier.verifyUpstream(asPaths[next++ & (PATH_COUNT - 1)], AddressFamily.IPV4);
+    }
+
+    @Benchmark
+    public AsPathValidityState verifyDownstream() {
+        return verifier.verifyDownstream(asPaths[next++ & (PATH_COUNT - 1)], AddressFamily.IPV4);
+    }
+
+    /**
+     * Upstream verification of all paths on the common pool. The score is in batches of {@value #PATH_COUNT}
+     * paths per second.
+     */
+    @Benchmark
+    public List<AsPathValidityState> verifyUpstreamInBulk() {
+        return verifier.verifyUpstream(asPathList, AddressFamily.IPV4, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,174 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Route origin validation of single announcements against a generated set of IPv4 VRPs. Half of the
+ * announcements are derived from a VRP, the other half are random prefixes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RouteOriginValidationPolicyBenchmark {
+
+    private static final int ANNOUNCED_ROUTES = 1 << 14;
+
+    @Param({"1000", "100000"})
+    public int allowedRouteCount;
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    private NestedIntervalMap<IpResource, List<AllowedRoute>> allowedRoutes;
+    private AllowedRouteTrie allowedRouteTrie;
+    private AllowedRouteTrieHolder allowedRouteTrieHolder;
+    private Path snapshotFile;
+    private AllowedRouteSnapshot allowedRouteSnapshot;
+    private AnnouncedRoute[] announcedRoutes;
+    private List<AnnouncedRoute> announcedRouteList;
+    private IncrementalRouteOriginValidator incrementalValidator;
+    private List<AllowedRoute> updatedRoute;
+    private long[] announcedAddresses;
+    private int[] announcedPrefixLengths;
+    private long[] announcedAsns;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+
+        List<AllowedRoute> routes = new ArrayList<>(allowedRouteCount);
+        for (int i = 0; i < allowedRouteCount; ++i) {
+            int prefixLength = 16 + random.nextInt(9);
+            routes.add(new AllowedRoute(randomAsn(random), randomIpv4Prefix(random, prefixLength), prefixLength + random.nextInt(25 - prefixLength)));
+        }
+        allowedRoutes = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(routes);
+        allowedRouteTrie = AllowedRouteTrie.of(routes);
+        allowedRouteTrieHolder = new AllowedRouteTrieHolder(allowedRouteTrie);
+        snapshotFile = Files.createTempFile("vrps", ".snapshot");
+        AllowedRouteSnapshot.write(AllowedRouteSet.of(routes), snapshotFile);
+        allowedRouteSnapshot = AllowedRouteSnapshot.map(snapshotFile);
+
+        announcedRoutes = new AnnouncedRoute[ANNOUNCED_ROUTES];
+        for (int i = 0; i < ANNOUNCED_ROUTES; ++i) {
+            if (random.nextBoolean()) {
+                AllowedRoute allowed = routes.get(random.nextInt(routes.size()));
+                announcedRoutes[i] = new AnnouncedRoute(random.nextBoolean() ? allowed.getAsn() : randomAsn(random), allowed.getPrefix());
+            } else {
+                announcedRoutes[i] = new AnnouncedRoute(randomAsn(random), randomIpv4Prefix(random, 16 + random.nextInt(9)));
+            }
+        }
+
+        announcedRouteList = Arrays.asList(announcedRoutes);
+        incrementalValidator = new IncrementalRouteOriginValidator(routes, announcedRouteList);
+        updatedRoute = Collections.singletonList(routes.get(0));
+
+        announcedAddresses = new long[ANNOUNCED_ROUTES];
+        announcedPrefixLengths = new int[ANNOUNCED_ROUTES];
+        announcedAsns = new long[ANNOUNCED_ROUTES];
+        for (int i = 0; i < ANNOUNCED_ROUTES; ++i) {
+            announcedAddresses[i] = ((Ipv4Address) announcedRoutes[i].getPrefix().getStart()).longValue();
+            announcedPrefixLengths[i] = announcedRoutes[i].getPrefix().getPrefixLength();
+            announcedAsns[i] = announcedRoutes[i].getOriginAsn().longValue();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    private static Asn randomAsn(Random random) {
+        return new Asn(1 + random.nextInt(65000));
+    }
+
+    private static IpRange randomIpv4Prefix(Random random, int prefixLength) {
+        long mask = (0xffffffffL << (32 - prefixLength)) & 0xffffffffL;
+        return IpRange.prefix(new Ipv4Address(random.nextInt() & mask), prefixLength);
+    }
+
+    @Benchmark
+    public RouteValidityState validateAnnouncedRoute() {
+        AnnouncedRoute route = announcedRoutes[next++ & (ANNOUNCED_ROUTES - 1)];
+        return policy.validateAnnouncedRoute(allowedRoutes, route);
+    }
+
+    @Benchmark
+    public RouteValidityState validateAnnouncedRouteWithTrie() {
+        AnnouncedRoute route = announcedRoutes[next++ & (ANNOUNCED_ROUTES - 1)];
+        return policy.validateAnnouncedRoute(allowedRouteTrie, route);
+    }
+
+    @Benchmark
+    public RouteValidityState validateAnnouncedRouteWithHolder() {
+        AnnouncedRoute route = announcedRoutes[next++ & (ANNOUNCED_ROUTES - 1)];
+        return policy.validateAnnouncedRoute(allowedRouteTrieHolder, route);
+    }
+
+    @Benchmark
+    public RouteValidityState validateAnnouncedRouteWithSnapshot() {
+        AnnouncedRoute route = announcedRoutes[next++ & (ANNOUNCED_ROUTES - 1)];
+        return policy.validateAnnouncedRoute(allowedRouteSnapshot, route);
+    }
+
+    /**
+     * Opening a snapshot, the startup cost of validating from a snapshot file.
+     */
+    @Benchmark
+    public AllowedRouteSnapshot mapSnapshot() throws IOException {
+        return AllowedRouteSnapshot.map(snapshotFile);
+    }
+
+    /**
+     * Validation of all announcements on the common pool. The score is in batches of {@value #ANNOUNCED_ROUTES}
+     * routes per second.
+     */
+    @Benchmark
+    public List<RouteValidityState> validateAnnouncedRoutesInBulk() {
+        return policy.validateAnnouncedRoutes(allowedRouteTrie, announcedRouteList, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Removing and adding back an allowed route, revalidating the announcements it covers after both changes.
+     */
+    @Benchmark
+    public int updateIncrementally() {
+        int changed = incrementalValidator.update(Collections.emptyList(), updatedRoute).size();
+        return changed + incrementalValidator.update(updatedRoute, Collections.emptyList()).size();
+    }
+
+    /**
+     * Validation with the announcements already in primitive form, as when reading them from a BGP feed.
+     */
+    @Benchmark
+    public RouteValidityState validateIpv4WithTrie() {
+        int i = next++ & (ANNOUNCED_ROUTES - 1);
+        return allowedRouteTrie.validateIpv4(announcedAddresses[i], announcedPrefixLengths[i], announcedAsns[i]);
+    }
+}
@@ -10,20 +10,21 @@ import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.cms.Attribute;
 import org.bouncycastle.asn1.cms.CMSAttributes;
 import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.asn1.cms.ContentInfo;
+import org.bouncycastle.asn1.cms.SignedData;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.*;
 import org.bouncycastle.cms.jcajce.JcaSignerInfoVerifierBuilder;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.util.StoreException;
 import org.joda.time.DateTime;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.security.cert.CRLException;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateEncodingException;
-import java.security.cert.CertificateException;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.Collection;
@@ -42,6 +43,8 @@ public abstract class RpkiSignedObjectParser {
 
     private X509ResourceCertificate certificate;
 
+    private X509CertificateHolder certificateHolder;
+
     protected ASN1ObjectIdentifier contentType;
 
     private Optional<DateTime> signingTime;
@@ -93,39 +96,61 @@ public abstract class RpkiSignedObjectParser {
         }
     }
 
+    /**
+     * Decodes the encapsulated content. By default the content is read as a single ASN.1 object, subclasses can
+     * decode the encoded content directly.
+     */
+    protected void decodeRawContent(byte[] content) throws IOException {
+        try (InputStream signedContentStream = new ByteArrayInputStream(content)) {
+            decodeRawContent(signedContentStream);
+        }
+    }
+
     public void decodeAsn1Content(ASN1Encodable content) {
     }
 
     private void parseCms() {
-        CMSSignedDataParser sp;
-        try {
-            sp = new CMSSignedDataParser(BouncyCastleUtil.DIGEST_CALCULATOR_PROVIDER, encoded);
+        // Decode the ContentInfo once and build the signed data view on top of it, so the outer content type,
+        // SignedData, EE certificate, signer info and eContent all come from a single ASN.1 traversal.
+        ContentInfo contentInfo;
+        CMSSignedData sp;
+        try (ASN1InputStream asn1InputStream = new ASN1InputStream(encoded)) {
+            contentInfo = ContentInfo.getInstance(asn1InputStream.readObject());
+            sp = new CMSSignedData(contentInfo);
             validationResult.pass(CMS_DATA_PARSING);
-        } catch (CMSException e) {
+        } catch (IOException | CMSException | RuntimeException e) {
             validationResult.error(CMS_DATA_PARSING);
             return;
         }
 
         parseContent(sp);
+        if (validationResult.isVerdictReached()) {
+            return;
+        }
         parseCmsCertificate(sp);
 
         //https://datatracker.ietf.org/doc/html/rfc6488#section-3
-        verifyContentType();
+        verifyContentType(contentInfo);
         verifyVersion(sp);
         verifyCrl(sp);
 
-        if (certificate != null) {
-            verifyCmsSigning(sp, certificate.getCertificate());
+        // In verdict-only mode an invalid object does not need the signature check.
+        if (certificate != null && !validationResult.isVerdictReached()) {
+            verifyCmsSigning(sp, certificate.getCertificate(), certificateHolder);
         }
     }
 
-    protected void parseContent(CMSSignedDataParser sp) {
-        final CMSTypedStream signedContent = sp.getSignedContent();
-        contentType = signedContent.getContentType();
+    protected void parseContent(CMSSignedData sp) {
+        contentType = new ASN1ObjectIdentifier(sp.getSignedContentTypeOID());
 
+        final CMSTypedData signedContent = sp.getSignedContent();
+        if (signedContent == null) {
+            validationResult.error(DECODE_CONTENT);
+            return;
+        }
 
-        try (InputStream signedContentStream = signedContent.getContentStream()) {
-            decodeRawContent(signedContentStream);
+        try {
+            decodeRawContent((byte[]) signedContent.getContent());
             validationResult.pass(DECODE_CONTENT);
         } catch (IOException e) {
             validationResult.error(DECODE_CONTENT);
@@ -136,29 +161,22 @@ public abstract class RpkiSignedObjectParser {
     /**
      * https://datatracker.ietf.org/doc/html/rfc6488#section-2
      */
-    private void verifyContentType() {
-        // CMSSignedDataParser does not check that the contentType of the ContentInfo is id-signeddata.
-        // and does not allow you to access it => use the other CMS Signed Data implementation that is in BC.
-        try {
-            final CMSSignedData signedData = new CMSSignedData(encoded);
-            validationResult.rejectIfFalse(CMSObjectIdentifiers.signedData.equals(signedData.toASN1Structure().getContentType()), CMS_CONTENT_TYPE);
-        } catch (CMSException e) {
-            validationResult.error(CMS_DATA_PARSING);
-        }
+    private void verifyContentType(ContentInfo contentInfo) {
+        validationResult.rejectIfFalse(CMSObjectIdentifiers.signedData.equals(contentInfo.getContentType()), CMS_CONTENT_TYPE);
     }
 
 
     /**
      * https://tools.ietf.org/html/rfc6488#section-2.1.1
      */
-    private void verifyVersion(CMSSignedDataParser sp) {
+    private void verifyVersion(CMSSignedData sp) {
         validationResult.rejectIfFalse(sp.getVersion() == CMS_OBJECT_VERSION, CMS_SIGNED_DATA_VERSION);
     }
 
     /**
      * https://tools.ietf.org/html/rfc6488#section-2.1.5
      */
-    private void verifyCrl(CMSSignedDataParser sp) {
+    private void verifyCrl(CMSSignedData sp) {
         List<? extends X509CRL> crls = extractCrl(sp);
         if (!validationResult.rejectIfNull(crls, GET_CERTS_AND_CRLS)) {
             return;
@@ -167,56 +185,64 @@ public abstract class RpkiSignedObjectParser {
         validationResult.rejectIfFalse(crls.size() == 0, CMS_NO_CRL_ALLOWED);
     }
 
-    private List<? extends X509CRL> extractCrl(CMSSignedDataParser sp) {
+    private List<? extends X509CRL> extractCrl(CMSSignedData sp) {
         try {
             return BouncyCastleUtil.extractCrls(sp);
-        } catch (CMSException | StoreException | CRLException e) {
+        } catch (StoreException | CRLException e) {
             return null;
         }
     }
 
-    private void parseCmsCertificate(CMSSignedDataParser sp) {
-        Collection<? extends Certificate> certificates = extractCertificate(sp);
+    private void parseCmsCertificate(CMSSignedData sp) {
+        ASN1Set certificateSet = SignedData.getInstance(sp.toASN1Structure().getContent()).getCertificates();
+        Collection<X509CertificateHolder> certificates = extractCertificates(sp);
 
         if (!validationResult.rejectIfNull(certificates, GET_CERTS_AND_CRLS)) {
             return;
         }
-        if (!validationResult.rejectIfFalse(certificates.size() == 1, ONLY_ONE_EE_CERT_ALLOWED)) {
+        if (!validationResult.rejectIfFalse(certificateSet != null && certificateSet.size() == 1, ONLY_ONE_EE_CERT_ALLOWED)) {
             return;
         }
-        if (!validationResult.rejectIfFalse(certificates.iterator().next() instanceof X509Certificate, CERT_IS_X509CERT)) {
+        // Other certificate choices than plain X.509 certificates are skipped by the store.
+        if (!validationResult.rejectIfFalse(certificates.size() == 1, CERT_IS_X509CERT)) {
             return;
         }
 
-        certificate = parseCertificate(certificates.iterator().next());
+        X509CertificateHolder holder = certificates.iterator().next();
+        certificate = parseCertificate(holder);
         if (validationResult.hasFailureForCurrentLocation()) {
             return;
         }
+        certificateHolder = holder;
 
         validationResult.rejectIfFalse(certificate.isEe(), CERT_IS_EE_CERT);
         validationResult.rejectIfNull(certificate.getSubjectKeyIdentifier(), CERT_HAS_SKI);
     }
 
-    private X509ResourceCertificate parseCertificate(Certificate certificate) {
+    /**
+     * The EE certificate is already decoded as part of the SignedData structure, so its DER encoding is handed
+     * straight to the resource certificate parser instead of first converting it to a JCA certificate. This
+     * keeps it to a single certificate parse per signed object.
+     */
+    private X509ResourceCertificate parseCertificate(X509CertificateHolder holder) {
         try {
-            X509Certificate x509certificate = (X509Certificate) certificate;
             X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
-            parser.parse(validationResult, x509certificate.getEncoded());
+            parser.parse(validationResult, holder.getEncoded());
             return parser.isSuccess() ? parser.getCertificate() : null;
-        } catch (CertificateEncodingException e) {
-            throw new AbstractX509CertificateWrapperException("cannot parse already decoded X509 certificate: " + e, e);
+        } catch (IOException e) {
+            throw new AbstractX509CertificateWrapperException("cannot encode already decoded X509 certificate: " + e, e);
         }
     }
 
-    private Collection<? extends Certificate> extractCertificate(CMSSignedDataParser sp) {
+    private Collection<X509CertificateHolder> extractCertificates(CMSSignedData sp) {
         try {
-            return BouncyCastleUtil.extractCertificates(sp);
-        } catch (CMSException | StoreException | CertificateException e) {
+            return sp.getCertificates().getMatches(null);
+        } catch (RuntimeException e) {
             return null;
         }
     }
 
-    private void verifyCmsSigning(CMSSignedDataParser sp, X509Certificate certificate) {
+    private void verifyCmsSigning(CMSSignedData sp, X509Certificate certificate, X509CertificateHolder certificateHolder) {
         // Note: validationResult field is updated by methods used here.
 
         SignerInformation signer = extractSingleCmsSigner(sp);
@@ -224,20 +250,20 @@ public abstract class RpkiSignedObjectParser {
             return;
         }
 
-        if (!verifySigner(signer, certificate)) {
+        if (!verifySigner(signer, certificateHolder) || validationResult.isVerdictReached()) {
             return;
         }
 
         final SigningInformationUtil.SigningTimeResult st = SigningInformationUtil.extractSigningTime(validationResult, signer);
-        if (!st.valid) {
+        if (!st.valid || validationResult.isVerdictReached()) {
             return;
         }
         this.signingTime = st.optionalSigningTime;
 
-        verifySignature(certificate, signer);
+        verifySignature(sp, certificate, signer);
     }
 
-    private SignerInformation extractSingleCmsSigner(CMSSignedDataParser sp) {
+    private SignerInformation extractSingleCmsSigner(CMSSignedData sp) {
         SignerInformationStore signerStore = getSignerStore(sp);
         if (!validationResult.rejectIfNull(signerStore, GET_SIGNER_INFO)) {
             return null;
@@ -251,10 +277,10 @@ public abstract class RpkiSignedObjectParser {
         }
     }
 
-    private SignerInformationStore getSignerStore(CMSSignedDataParser sp) {
+    private SignerInformationStore getSignerStore(CMSSignedData sp) {
         try {
             return sp.getSignerInfos();
-        } catch (CMSException | RuntimeException e) {
+        } catch (RuntimeException e) {
             return null; // Caller will validate that the SignerInformationStore is not null
         }
     }
@@ -292,7 +318,7 @@ public abstract class RpkiSignedObjectParser {
         return allAttributesCorrect;
     }
 
-    private boolean verifySigner(SignerInformation signer, X509Certificate certificate) {
+    private boolean verifySigner(SignerInformation signer, X509CertificateHolder certificateHolder) {
         verifySignerVersion(signer);
 
         validationResult.rejectIfFalse(DIGEST_ALGORITHM_OID.equals(signer.getDigestAlgOID()), CMS_SIGNER_INFO_DIGEST_ALGORITHM);
@@ -313,11 +339,7 @@ public abstract class RpkiSignedObjectParser {
         verifyUnsignedAttributes(signer);
 
         SignerId signerId = signer.getSID();
-        try {
-            validationResult.rejectIfFalse(signerId.match(new JcaX509CertificateHolder(certificate)), SIGNER_ID_MATCH);
-        } catch (CertificateEncodingException e) {
-            throw new AbstractX509CertificateWrapperException(e);
-        }
+        validationResult.rejectIfFalse(signerId.match(certificateHolder), SIGNER_ID_MATCH);
 
         return true;
     }
@@ -329,7 +351,14 @@ public abstract class RpkiSignedObjectParser {
         validationResult.rejectIfFalse(signer.getVersion() == CMS_OBJECT_SIGNER_VERSION, CMS_SIGNER_INFO_VERSION);
     }
 
-    private void verifySignature(X509Certificate certificate, SignerInformation signer) {
+    private void verifySignature(CMSSignedData sp, X509Certificate certificate, SignerInformation signer) {
+        // The message digest is only defined for the algorithms listed in SignedData.digestAlgorithms
+        // (https://tools.ietf.org/html/rfc6488#section-2.1.2), so a signer using any other algorithm cannot verify.
+        if (!isDeclaredDigestAlgorithm(sp, signer)) {
+            validationResult.rejectIfFalse(false, SIGNATURE_VERIFICATION, "no digest calculated for algorithm " + signer.getDigestAlgOID());
+            return;
+        }
+
         String errorMessage = null;
         try {
             /*
@@ -351,6 +380,15 @@ public abstract class RpkiSignedObjectParser {
         }
     }
 
+    private boolean isDeclaredDigestAlgorithm(CMSSignedData sp, SignerInformation signer) {
+        for (AlgorithmIdentifier digestAlgorithm : sp.getDigestAlgorithmIDs()) {
+            if (digestAlgorithm.getAlgorithm().equals(signer.getDigestAlgorithmID().getAlgorithm())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * https://tools.ietf.org/html/rfc6488#section-2.1.6.7
      */
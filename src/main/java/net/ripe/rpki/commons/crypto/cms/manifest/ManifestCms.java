@@ -20,13 +20,22 @@ import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.joda.time.DateTime;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -37,7 +46,7 @@ import java.util.stream.Collectors;
  */
 public class ManifestCms extends RpkiSignedObject {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     public static final int DEFAULT_VERSION = 0;
 
@@ -50,14 +59,14 @@ public class ManifestCms extends RpkiSignedObject {
      */
     private static final Pattern FILE_NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_-]+\\.[a-z]{3}");
 
-    private final Map<String, byte[]> hashes;
+    private final ManifestEntries entries;
 
     private final ManifestCmsGeneralInfo manifestCmsGeneralInfo;
 
-    ManifestCms(RpkiSignedObjectInfo cmsObjectData, ManifestCmsGeneralInfo manifestCmsGeneralInfo, Map<String, byte[]> hashes) {
+    ManifestCms(RpkiSignedObjectInfo cmsObjectData, ManifestCmsGeneralInfo manifestCmsGeneralInfo, ManifestEntries entries) {
         super(cmsObjectData);
         this.manifestCmsGeneralInfo = manifestCmsGeneralInfo;
-        this.hashes = hashes;
+        this.entries = entries;
     }
 
     public int getVersion() {
@@ -81,15 +90,19 @@ public class ManifestCms extends RpkiSignedObject {
     }
 
     public int size() {
-        return hashes.size();
+        return entries.size();
     }
 
     public boolean containsFile(String fileName) {
-        return hashes.containsKey(fileName);
+        return entries.indexOf(fileName) >= 0;
     }
 
+    /**
+     * @return an unmodifiable view of the hashes by file name, ordered by file name. The view returns a copy of
+     * the hash on every access.
+     */
     public Map<String, byte[]> getHashes() {
-        return hashes;
+        return entries.asMap();
     }
 
     public Map<String, byte[]> getFiles() {
@@ -101,11 +114,10 @@ public class ManifestCms extends RpkiSignedObject {
         //   * The file names are unique (implied by hashes being a Map),
         //   * The manifest and the set of files contain the same file names, and
         //   * For each file, the hash of the content matches the hash on the manifest.
-        if (hashes.keySet().equals(filesToMatch.keySet())) {
-            for (Entry<String, byte[]> entry : hashes.entrySet()) {
-                String fileName = entry.getKey();
-                byte[] contentToMatch = filesToMatch.get(fileName);
-                if (!verifyFileContents(fileName, contentToMatch)) {
+        if (getFileNames().equals(filesToMatch.keySet())) {
+            for (int i = 0; i < entries.size(); ++i) {
+                byte[] contentToMatch = filesToMatch.get(entries.getName(i));
+                if (!entries.hashEquals(i, hashContents(contentToMatch))) {
                     return false;
                 }
             }
@@ -115,8 +127,88 @@ public class ManifestCms extends RpkiSignedObject {
         }
     }
 
+    /**
+     * Verifies the files against the manifest. Every file is streamed through a digest that is reused for the
+     * other files hashed by the same thread, and the hashing is split over the threads of the pool. Files are read
+     * in a {@link ForkJoinPool.ManagedBlocker}, so the pool can add threads while its threads block on I/O and the
+     * common pool can be used.
+     *
+     * @param files the files by name
+     * @return the status of every file on the manifest and every given file, ordered by file name
+     */
+    public SortedMap<String, ManifestFileStatus> verifyFiles(Map<String, ? extends ManifestFileSource> files, ForkJoinPool pool) {
+        TreeSet<String> fileNames = new TreeSet<>(getFileNames());
+        fileNames.addAll(files.keySet());
+        String[] names = fileNames.toArray(new String[0]);
+        ManifestFileStatus[] statuses = new ManifestFileStatus[names.length];
+        pool.invoke(new VerifyFilesAction(this, files, names, statuses, 0, names.length));
+
+        SortedMap<String, ManifestFileStatus> result = new TreeMap<>();
+        for (int i = 0; i < names.length; ++i) {
+            result.put(names[i], statuses[i]);
+        }
+        return result;
+    }
+
+    private ManifestFileStatus verifyFile(ManifestFileHasher hasher, String fileName, ManifestFileSource source) {
+        int index = entries.indexOf(fileName);
+        if (index < 0) {
+            return ManifestFileStatus.NOT_ON_MANIFEST;
+        } else if (source == null) {
+            return ManifestFileStatus.MISSING;
+        }
+        try {
+            return entries.hashEquals(index, hasher.hash(source)) ? ManifestFileStatus.MATCHES : ManifestFileStatus.HASH_MISMATCH;
+        } catch (IOException | UncheckedIOException e) {
+            return ManifestFileStatus.UNREADABLE;
+        }
+    }
+
+    /**
+     * Verifies a file on disk against the manifest. The file is hashed through a memory mapping or a direct
+     * buffer, so its content is never copied into the heap as a whole.
+     *
+     * @return true when the hash of the file content matches the hash on the manifest
+     */
+    public boolean verifyFile(String fileName, Path path) throws IOException {
+        int index = entries.indexOf(fileName);
+        Validate.isTrue(index >= 0);
+        return entries.hashEquals(index, ManifestFileHasher.get().hash(path));
+    }
+
+    /**
+     * Compares the entries of this manifest with those of a previous manifest in a single walk over both sorted
+     * entry lists, so only the files that were added or changed need to be fetched and validated again.
+     */
+    public ManifestDiff diff(ManifestCms previous) {
+        ManifestEntries before = previous.entries;
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < entries.size() || j < before.size()) {
+            int c = i == entries.size() ? 1 : j == before.size() ? -1 : entries.getName(i).compareTo(before.getName(j));
+            if (c < 0) {
+                added.add(entries.getName(i++));
+            } else if (c > 0) {
+                removed.add(before.getName(j++));
+            } else {
+                if (!entries.hashEquals(i, before, j)) {
+                    changed.add(entries.getName(i));
+                }
+                i++;
+                j++;
+            }
+        }
+        return new ManifestDiff(Collections.unmodifiableList(added), Collections.unmodifiableList(removed), Collections.unmodifiableList(changed));
+    }
+
+    /**
+     * @return an unmodifiable view of the file names, in order
+     */
     public Set<String> getFileNames() {
-        return hashes.keySet();
+        return entries.names();
     }
 
     @Override
@@ -129,6 +221,9 @@ public class ManifestCms extends RpkiSignedObject {
         result.setLocation(new ValidationLocation(location));
         checkManifestValidityTimes(options, result);
         checkEntries(result);
+        if (result.isVerdictReached()) {
+            return;
+        }
         super.validateWithCrl(location, context, options, result, crl);
     }
 
@@ -147,18 +242,18 @@ public class ManifestCms extends RpkiSignedObject {
         DateTime thisUpdateTime = getThisUpdateTime();
         DateTime nextUpdateTime = getNextUpdateTime();
 
-        result.rejectIfFalse(thisUpdateTime.isBefore(nextUpdateTime), ValidationString.MANIFEST_THIS_UPDATE_TIME_BEFORE_NEXT_UPDATE_TIME, thisUpdateTime.toString(), nextUpdateTime.toString());
-        result.rejectIfTrue(thisUpdateTime.isAfterNow(), ValidationString.MANIFEST_BEFORE_THIS_UPDATE_TIME, thisUpdateTime.toString());
+        result.rejectIfFalse(thisUpdateTime.isBefore(nextUpdateTime), ValidationString.MANIFEST_THIS_UPDATE_TIME_BEFORE_NEXT_UPDATE_TIME, thisUpdateTime, nextUpdateTime);
+        result.rejectIfTrue(thisUpdateTime.isAfterNow(), ValidationString.MANIFEST_BEFORE_THIS_UPDATE_TIME, thisUpdateTime);
 
         if(options.isStrictManifestCRLValidityChecks()){
             boolean postGracePeriod = nextUpdateTime.plus(options.getManifestMaxStalePeriod()).isBeforeNow();
             if (postGracePeriod) {
-                result.error(ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime.toString());
+                result.error(ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime);
             } else {
-                result.warnIfTrue(nextUpdateTime.isBeforeNow(), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime.toString());
+                result.warnIfTrue(nextUpdateTime.isBeforeNow(), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime);
             }
         } else {
-            result.warnIfTrue(nextUpdateTime.isBeforeNow(), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime.toString());
+            result.warnIfTrue(nextUpdateTime.isBeforeNow(), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime);
         }
 
     }
@@ -168,11 +263,14 @@ public class ManifestCms extends RpkiSignedObject {
      */
     @Deprecated
     public byte[] getHash(String fileName) {
-        return hashes.get(fileName);
+        int index = entries.indexOf(fileName);
+        return index < 0 ? null : entries.getHash(index);
     }
 
     public boolean verifyFileContents(String fileName, byte[] contents) {
-        return getFileContentSpecification(fileName).isSatisfiedBy(contents);
+        int index = entries.indexOf(fileName);
+        Validate.isTrue(index >= 0);
+        return entries.hashEquals(index, hashContents(contents));
     }
 
     public FileContentSpecification getFileContentSpecification(String fileName) {
@@ -188,6 +286,59 @@ public class ManifestCms extends RpkiSignedObject {
         return digestValue;
     }
 
+    private static final class VerifyFilesAction extends RecursiveAction implements ForkJoinPool.ManagedBlocker {
+        // Number of files below which the work is not split any further.
+        private static final int THRESHOLD = 16;
+
+        private final ManifestCms manifest;
+        private final Map<String, ? extends ManifestFileSource> files;
+        private final String[] names;
+        private final ManifestFileStatus[] result;
+        private final int from;
+        private final int to;
+        private boolean verified;
+
+        private VerifyFilesAction(ManifestCms manifest, Map<String, ? extends ManifestFileSource> files, String[] names, ManifestFileStatus[] result, int from, int to) {
+            this.manifest = manifest;
+            this.files = files;
+            this.names = names;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                try {
+                    ForkJoinPool.managedBlock(this);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while verifying manifest files", e);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyFilesAction(manifest, files, names, result, from, middle),
+                        new VerifyFilesAction(manifest, files, names, result, middle, to));
+            }
+        }
+
+        @Override
+        public boolean block() {
+            ManifestFileHasher hasher = ManifestFileHasher.get();
+            for (int i = from; i < to; ++i) {
+                result[i] = manifest.verifyFile(hasher, names[i], files.get(names[i]));
+            }
+            verified = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return verified;
+        }
+    }
+
     public static class FileContentSpecification implements Specification<byte[]> {
         private byte[] hash;
 
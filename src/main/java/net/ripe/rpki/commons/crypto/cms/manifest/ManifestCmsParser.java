@@ -16,8 +16,6 @@ import org.joda.time.DateTime;
 
 import java.math.BigInteger;
 import java.text.ParseException;
-import java.util.Map;
-import java.util.TreeMap;
 
 import static net.ripe.rpki.commons.crypto.util.Asn1Util.*;
 import static net.ripe.rpki.commons.validation.ValidationString.*;
@@ -38,7 +36,7 @@ public class ManifestCmsParser extends RpkiSignedObjectParser {
 
     private String fileHashAlgorithm;
 
-    private Map<String, byte[]> files;
+    private ManifestEntries files;
 
     @Override
     public void parse(ValidationResult result, byte[] encoded) {
@@ -49,7 +47,7 @@ public class ManifestCmsParser extends RpkiSignedObjectParser {
     }
 
     public boolean isSuccess() {
-        return !getValidationResult().hasFailures();
+        return !getValidationResult().hasFailureForCurrentLocation();
     }
 
     public ManifestCms getManifestCms() {
@@ -72,15 +70,15 @@ public class ManifestCmsParser extends RpkiSignedObjectParser {
         validationResult.rejectIfFalse(getResourceCertificate().isResourceSetInherited(), MANIFEST_RESOURCE_INHERIT);
     }
 
-    void decodeFileAndHash(Map<String, byte[]> result, ASN1Encodable encoded) {
+    void decodeFileAndHash(ManifestEntries.Builder result, ASN1Encodable encoded) {
         ASN1Sequence seq = expect(encoded, ASN1Sequence.class);
         Validate.isTrue(seq.size() == 2, "der sequence does not contain file and hash");
         DERIA5String derFile = expect(seq.getObjectAt(0), DERIA5String.class);
         DERBitString derHash = expect(seq.getObjectAt(1), DERBitString.class);
-        result.put(derFile.getString(), derHash.getBytes());
+        result.add(derFile.getString(), derHash.getBytes());
     }
 
-    void decodeFileList(Map<String, byte[]> result, ASN1Encodable encoded) {
+    void decodeFileList(ManifestEntries.Builder result, ASN1Encodable encoded) {
         ASN1Sequence seq = expect(encoded, ASN1Sequence.class);
         boolean errorOccured = false;
         for (int i = 0; i < seq.size(); ++i) {
@@ -118,8 +116,9 @@ public class ManifestCmsParser extends RpkiSignedObjectParser {
             nextUpdateTime = UTC.dateTime(expect(seq.getObjectAt(offset++), ASN1GeneralizedTime.class).getDate().getTime());
             fileHashAlgorithm = expect(seq.getObjectAt(offset++), ASN1ObjectIdentifier.class).getId();
             validationResult.rejectIfFalse(ManifestCms.FILE_HASH_ALGORITHM.equals(fileHashAlgorithm), MANIFEST_FILE_HASH_ALGORITHM, fileHashAlgorithm);
-            files = new TreeMap<>();
-            decodeFileList(files, seq.getObjectAt(offset));
+            ManifestEntries.Builder fileList = new ManifestEntries.Builder();
+            decodeFileList(fileList, seq.getObjectAt(offset));
+            files = fileList.build();
         } catch (IllegalArgumentException e) {
             validationResult.error(MANIFEST_CONTENT_STRUCTURE);
         } catch (ParseException e) {
@@ -0,0 +1,32 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * The difference between two manifests of the same CA, see {@link ManifestCms#diff(ManifestCms)}. The file names
+ * are in order.
+ */
+@Value
+public class ManifestDiff {
+    /**
+     * Files that are only on the current manifest.
+     */
+    List<String> added;
+    /**
+     * Files that are only on the previous manifest.
+     */
+    List<String> removed;
+    /**
+     * Files that are on both manifests, with different hashes.
+     */
+    List<String> changed;
+
+    /**
+     * @return true when both manifests list the same files with the same hashes
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
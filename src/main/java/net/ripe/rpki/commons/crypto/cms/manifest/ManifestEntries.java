@@ -0,0 +1,226 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The file names and hashes of a manifest, stored compactly: the names in a sorted array, searched with a binary
+ * search, and the hashes in a single block in the same order. With the usual SHA-256 hashes this is a block of
+ * N × 32 bytes. Only when the hashes differ in length (malformed manifests) are their offsets stored as well.
+ * <p>
+ * Instances are immutable. The map and set views are unmodifiable and return copies of the hashes.
+ */
+final class ManifestEntries implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] names;
+    private final byte[] hashes;
+    // Offset of the hash of every entry, plus the end of the last hash. Null when all hashes have hashLength bytes.
+    private final int[] hashOffsets;
+    private final int hashLength;
+
+    private ManifestEntries(String[] names, byte[] hashes, int[] hashOffsets, int hashLength) {
+        this.names = names;
+        this.hashes = hashes;
+        this.hashOffsets = hashOffsets;
+        this.hashLength = hashLength;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the index of the entry with the name, or a negative number when there is no such entry
+     */
+    int indexOf(String name) {
+        return Arrays.binarySearch(names, name);
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return a copy of the hash of the entry
+     */
+    byte[] getHash(int index) {
+        return Arrays.copyOfRange(hashes, hashStart(index), hashEnd(index));
+    }
+
+    boolean hashEquals(int index, byte[] hash) {
+        int start = hashStart(index);
+        int length = hashEnd(index) - start;
+        if (length != hash.length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (hashes[start + i] != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hashEquals(int index, ManifestEntries other, int otherIndex) {
+        int start = hashStart(index);
+        int otherStart = other.hashStart(otherIndex);
+        int length = hashEnd(index) - start;
+        if (length != other.hashEnd(otherIndex) - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (hashes[start + i] != other.hashes[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hashStart(int index) {
+        return hashOffsets == null ? index * hashLength : hashOffsets[index];
+    }
+
+    private int hashEnd(int index) {
+        return hashOffsets == null ? (index + 1) * hashLength : hashOffsets[index + 1];
+    }
+
+    /**
+     * @return an unmodifiable view of the file names, in order
+     */
+    Set<String> names() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return Arrays.asList(names).iterator();
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && indexOf((String) o) >= 0;
+            }
+        };
+    }
+
+    /**
+     * @return an unmodifiable view of the hashes by file name, in file name order
+     */
+    Map<String, byte[]> asMap() {
+        return new AbstractMap<String, byte[]>() {
+            @Override
+            public Set<Entry<String, byte[]>> entrySet() {
+                return new AbstractSet<Entry<String, byte[]>>() {
+                    @Override
+                    public Iterator<Entry<String, byte[]>> iterator() {
+                        return new Iterator<Entry<String, byte[]>>() {
+                            private int index;
+
+                            @Override
+                            public boolean hasNext() {
+                                return index < names.length;
+                            }
+
+                            @Override
+                            public Entry<String, byte[]> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<String, byte[]> result = new SimpleImmutableEntry<>(names[index], getHash(index));
+                                index++;
+                                return result;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return names.length;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof String && indexOf((String) key) >= 0;
+            }
+
+            @Override
+            public byte[] get(Object key) {
+                int index = key instanceof String ? indexOf((String) key) : -1;
+                return index < 0 ? null : getHash(index);
+            }
+
+            @Override
+            public Set<String> keySet() {
+                return names();
+            }
+        };
+    }
+
+    /**
+     * Collects entries in any order. Like a map, a later entry with the same name replaces an earlier one.
+     */
+    static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<byte[]> hashes = new ArrayList<>();
+
+        Builder add(String name, byte[] hash) {
+            names.add(name);
+            hashes.add(hash);
+            return this;
+        }
+
+        ManifestEntries build() {
+            Integer[] order = new Integer[names.size()];
+            for (int i = 0; i < order.length; ++i) {
+                order[i] = i;
+            }
+            // Stable, so the last of the entries with the same name comes last.
+            Arrays.sort(order, Comparator.comparing(names::get));
+
+            List<Integer> unique = new ArrayList<>(order.length);
+            for (int i = 0; i < order.length; ++i) {
+                if (i + 1 == order.length || !names.get(order[i]).equals(names.get(order[i + 1]))) {
+                    unique.add(order[i]);
+                }
+            }
+
+            int count = unique.size();
+            String[] resultNames = new String[count];
+            int[] offsets = new int[count + 1];
+            boolean uniformLength = true;
+            for (int i = 0; i < count; ++i) {
+                resultNames[i] = names.get(unique.get(i));
+                byte[] hash = hashes.get(unique.get(i));
+                offsets[i + 1] = offsets[i] + hash.length;
+                uniformLength &= hash.length == hashes.get(unique.get(0)).length;
+            }
+            byte[] block = new byte[offsets[count]];
+            for (int i = 0; i < count; ++i) {
+                byte[] hash = hashes.get(unique.get(i));
+                System.arraycopy(hash, 0, block, offsets[i], hash.length);
+            }
+            int hashLength = count == 0 ? 0 : offsets[1];
+            return new ManifestEntries(resultNames, block, uniformLength ? null : offsets, hashLength);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Hashes file content with SHA-256 through a fixed size buffer, so files are never loaded into memory as a whole.
+ * The digest and buffers are reused for every file, so an instance must only be used by one thread at a time.
+ */
+final class ManifestFileHasher {
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * Files of at least this size are memory mapped. Smaller files, the vast majority of RPKI objects, are read
+     * into a direct buffer, since every mapping is only released when its buffer is garbage collected.
+     */
+    private static final long MAPPED_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Large files are mapped in windows of this size, limiting the address space used at any time.
+     */
+    private static final long MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final ThreadLocal<ManifestFileHasher> HASHERS = ThreadLocal.withInitial(ManifestFileHasher::new);
+
+    private final SHA256Digest digest = new SHA256Digest();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private final ByteBuffer directBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] hash = new byte[digest.getDigestSize()];
+
+    /**
+     * @return the hasher of the current thread
+     */
+    static ManifestFileHasher get() {
+        return HASHERS.get();
+    }
+
+    /**
+     * @return the hash of the source content, in an array that is overwritten by the next call
+     */
+    byte[] hash(ManifestFileSource source) throws IOException {
+        if (source instanceof PathManifestFileSource) {
+            return hash(((PathManifestFileSource) source).getPath());
+        }
+        digest.reset();
+        try (ReadableByteChannel channel = source.open()) {
+            int count;
+            while ((count = channel.read(byteBuffer)) >= 0) {
+                digest.update(buffer, 0, count);
+                byteBuffer.clear();
+            }
+        } finally {
+            byteBuffer.clear();
+        }
+        return finish();
+    }
+
+    /**
+     * Hashes the file without reading it into a heap buffer: small files are read into a direct buffer and large
+     * files are memory mapped. Only the chunk passed to the digest is copied to the heap.
+     *
+     * @return the hash of the file content, in an array that is overwritten by the next call
+     */
+    byte[] hash(Path path) throws IOException {
+        digest.reset();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPED_FILE_SIZE) {
+                for (long position = 0; position < size; position += MAPPED_WINDOW_SIZE) {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_WINDOW_SIZE, size - position));
+                    update(window);
+                }
+            } else {
+                try {
+                    while (channel.read(directBuffer) >= 0) {
+                        directBuffer.flip();
+                        update(directBuffer);
+                        directBuffer.clear();
+                    }
+                } finally {
+                    directBuffer.clear();
+                }
+            }
+        }
+        return finish();
+    }
+
+    private void update(ByteBuffer content) {
+        while (content.hasRemaining()) {
+            int count = Math.min(content.remaining(), buffer.length);
+            content.get(buffer, 0, count);
+            digest.update(buffer, 0, count);
+        }
+    }
+
+    private byte[] finish() {
+        digest.doFinal(hash, 0);
+        return hash;
+    }
+}
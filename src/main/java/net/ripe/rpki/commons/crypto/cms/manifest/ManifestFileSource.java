@@ -0,0 +1,24 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * The content of a file to verify against a manifest, opened only when it is hashed.
+ */
+@FunctionalInterface
+public interface ManifestFileSource {
+
+    /**
+     * @return a new channel positioned at the start of the file content, closed by the caller
+     */
+    ReadableByteChannel open() throws IOException;
+
+    /**
+     * @return the source of a file on disk, which is hashed like {@link ManifestCms#verifyFile(String, Path)}
+     */
+    static ManifestFileSource of(Path path) {
+        return new PathManifestFileSource(path);
+    }
+}
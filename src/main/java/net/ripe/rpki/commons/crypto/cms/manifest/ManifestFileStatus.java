@@ -0,0 +1,27 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+/**
+ * The result of verifying a file against a manifest.
+ */
+public enum ManifestFileStatus {
+    /**
+     * The hash of the file content matches the hash on the manifest.
+     */
+    MATCHES,
+    /**
+     * The hash of the file content differs from the hash on the manifest.
+     */
+    HASH_MISMATCH,
+    /**
+     * The file is on the manifest, but was not provided.
+     */
+    MISSING,
+    /**
+     * The file was provided, but is not on the manifest.
+     */
+    NOT_ON_MANIFEST,
+    /**
+     * The file could not be read.
+     */
+    UNREADABLE
+}
@@ -0,0 +1,27 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file on disk, which {@link ManifestFileHasher} hashes without copying it into a heap buffer.
+ */
+final class PathManifestFileSource implements ManifestFileSource {
+    private final Path path;
+
+    PathManifestFileSource(Path path) {
+        this.path = path;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    @Override
+    public ReadableByteChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+}
@@ -1,8 +1,8 @@
 package net.ripe.rpki.commons.crypto.cms.roa;
 
+import com.google.common.collect.Lists;
 import net.ripe.ipresource.Asn;
 import net.ripe.ipresource.IpRange;
-import net.ripe.ipresource.IpResourceSet;
 import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectInfo;
 import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectParser;
@@ -13,9 +13,9 @@ import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1Sequence;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import static net.ripe.rpki.commons.crypto.util.Asn1Util.*;
@@ -33,6 +33,32 @@ public class RoaCmsParser extends RpkiSignedObjectParser {
         validateRoa();
     }
 
+    /**
+     * Decodes well formed DER content with {@link RoaContentDecoder}, recording the same checks as the generic
+     * ASN.1 parsing, which is still used for all other content.
+     */
+    @Override
+    protected void decodeRawContent(byte[] content) throws IOException {
+        RoaContentDecoder decoder = new RoaContentDecoder();
+        if (!decoder.decode(content)) {
+            super.decodeRawContent(content);
+            return;
+        }
+        asn = new Asn(decoder.getAsn());
+        prefixes = decoder.getRoaPrefixes();
+
+        ValidationResult validationResult = getValidationResult();
+        for (int i = 0; i < decoder.getPrefixCount(); ++i) {
+            validationResult.pass(PREFIX_IN_ADDR_FAMILY);
+            if (decoder.getMaximumLength(i) >= 0) {
+                validationResult.pass(PREFIX_LENGTH);
+            }
+        }
+        checkAddressFamilies(true, prefixes);
+        validationResult.pass(ONLY_ONE_SIGNED_OBJECT);
+        validationResult.pass(CMS_CONTENT_PARSING);
+    }
+
     public boolean isSuccess() {
         return !getValidationResult().hasFailureForCurrentLocation();
     }
@@ -56,12 +82,9 @@ public class RoaCmsParser extends RpkiSignedObjectParser {
             return;
         }
 
-        IpResourceSet roaPrefixes = new IpResourceSet();
-        for (RoaPrefix prefix : Collections.unmodifiableList(prefixes)) {
-            roaPrefixes.add(prefix.getPrefix());
-        }
+        List<IpRange> roaPrefixes = Lists.transform(prefixes, RoaPrefix::getPrefix);
         try {
-            validationResult.rejectIfFalse(getResourceCertificate().containsResources(roaPrefixes), ROA_RESOURCES);
+            validationResult.rejectIfFalse(getResourceCertificate().getResourcesView().containsAll(roaPrefixes), ROA_RESOURCES);
         } catch (Exception e) {
             validationResult.rejectIfFalse(false, ROA_RESOURCES);
         }
@@ -155,14 +178,20 @@ public class RoaCmsParser extends RpkiSignedObjectParser {
                 errorOccured = true;
             }
         }
+        checkAddressFamilies(!errorOccured, roaPrefixList);
+        return roaPrefixList;
+    }
+
+    /**
+     * Records the checks of the address family sequence, for both the generic parser and {@link RoaContentDecoder}.
+     */
+    private void checkAddressFamilies(boolean addressFamiliesValid, List<RoaPrefix> roaPrefixList) {
         ValidationResult validationResult = getValidationResult();
-        if (!errorOccured) {
-            validationResult.rejectIfFalse(true, ADDR_FAMILY_AND_ADDR_IN_DER_SEQ);
-            validationResult.rejectIfFalse(true, ADDR_FAMILY);
+        if (addressFamiliesValid) {
+            validationResult.pass(ADDR_FAMILY_AND_ADDR_IN_DER_SEQ);
+            validationResult.pass(ADDR_FAMILY);
         }
-
         validationResult.rejectIfTrue(roaPrefixList.isEmpty(), ROA_PREFIX_LIST);
-        return roaPrefixList;
     }
 
     @Override
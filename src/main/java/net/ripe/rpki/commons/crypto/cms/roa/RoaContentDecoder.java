@@ -0,0 +1,270 @@
+package net.ripe.rpki.commons.crypto.cms.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes the DER encoded ROA eContent (RFC 6482) straight from the bytes into primitive columns, without building
+ * ASN.1 objects:
+ * <pre>
+ * RouteOriginAttestation ::= SEQUENCE {
+ *     version [0] INTEGER DEFAULT 0,
+ *     asID ASID,
+ *     ipAddrBlocks SEQUENCE (SIZE(1..MAX)) OF ROAIPAddressFamily }
+ * ROAIPAddressFamily ::= SEQUENCE {
+ *     addressFamily OCTET STRING (SIZE (2..3)),
+ *     addresses SEQUENCE (SIZE (1..MAX)) OF ROAIPAddress }
+ * ROAIPAddress ::= SEQUENCE {
+ *     address IPAddress,
+ *     maxLength INTEGER OPTIONAL }
+ * </pre>
+ * Only the common, well formed case is decoded: DER without the (default) version, IPv4 and IPv6 address families
+ * without SAFI, and prefixes with a valid maximum length. For anything else {@link #decode(byte[])} returns false
+ * and the content must be parsed by the generic ASN.1 code, which reports the exact validation failures.
+ */
+final class RoaContentDecoder {
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+    private static final int TAG_OCTET_STRING = 0x04;
+    private static final int TAG_SEQUENCE = 0x30;
+
+    /**
+     * Thrown for content this decoder does not handle. Pre-allocated without stack trace, it is only used to
+     * unwind the decoder.
+     */
+    private static final RuntimeException NOT_DECODED = new RuntimeException("not decoded", null, false, false) {
+    };
+
+    private byte[] encoded;
+    private int position;
+
+    private long asn;
+    private int prefixCount;
+    private boolean[] ipv4 = new boolean[16];
+    private long[] addressHigh = new long[16];
+    private long[] addressLow = new long[16];
+    private byte[] prefixLength = new byte[16];
+    // -1 when the maximum length is absent.
+    private short[] maximumLength = new short[16];
+
+    /**
+     * @return true when the content was decoded, false when it must be parsed by the generic ASN.1 parser
+     */
+    boolean decode(byte[] content) {
+        this.encoded = content;
+        this.position = 0;
+        this.prefixCount = 0;
+        try {
+            int end = readHeader(TAG_SEQUENCE, content.length);
+            if (end != content.length) {
+                return false;
+            }
+            asn = readAsn(end);
+            int blocksEnd = readHeader(TAG_SEQUENCE, end);
+            if (blocksEnd != end || position == blocksEnd) {
+                return false;
+            }
+            while (position < blocksEnd) {
+                readAddressFamily(blocksEnd);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // Thrown for unexpected content, or by an array access when a length points beyond the content.
+            return false;
+        } finally {
+            this.encoded = null;
+        }
+    }
+
+    long getAsn() {
+        return asn;
+    }
+
+    int getPrefixCount() {
+        return prefixCount;
+    }
+
+    boolean isIpv4(int index) {
+        return ipv4[index];
+    }
+
+    /**
+     * @return the most significant 64 bits of the address. IPv4 addresses are in the top 32 bits.
+     */
+    long getAddressHigh(int index) {
+        return addressHigh[index];
+    }
+
+    long getAddressLow(int index) {
+        return addressLow[index];
+    }
+
+    int getPrefixLength(int index) {
+        return prefixLength[index] & 0xff;
+    }
+
+    /**
+     * @return the maximum length, or -1 when absent
+     */
+    int getMaximumLength(int index) {
+        return maximumLength[index];
+    }
+
+    List<RoaPrefix> getRoaPrefixes() {
+        List<RoaPrefix> result = new ArrayList<>(prefixCount);
+        for (int i = 0; i < prefixCount; ++i) {
+            IpRange prefix;
+            if (ipv4[i]) {
+                prefix = IpRange.prefix(new Ipv4Address(addressHigh[i] >>> 32), getPrefixLength(i));
+            } else {
+                prefix = IpRange.prefix(new Ipv6Address(toUnsignedBigInteger(addressHigh[i], addressLow[i])), getPrefixLength(i));
+            }
+            result.add(new RoaPrefix(prefix, maximumLength[i] < 0 ? null : (int) maximumLength[i]));
+        }
+        return result;
+    }
+
+    private static BigInteger toUnsignedBigInteger(long high, long low) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; ++i) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    private long readAsn(int limit) {
+        int end = readHeader(TAG_INTEGER, limit);
+        int length = end - position;
+        // Positive, minimally encoded and at most 32 bits.
+        if (length < 1 || length > 5 || encoded[position] < 0
+                || (length > 1 && encoded[position] == 0 && encoded[position + 1] >= 0)
+                || (length == 5 && encoded[position] != 0)) {
+            throw NOT_DECODED;
+        }
+        long value = 0;
+        while (position < end) {
+            value = value << 8 | (encoded[position++] & 0xff);
+        }
+        return value;
+    }
+
+    private void readAddressFamily(int limit) {
+        int end = readHeader(TAG_SEQUENCE, limit);
+        int familyEnd = readHeader(TAG_OCTET_STRING, end);
+        if (familyEnd - position != 2 || encoded[position] != 0 || (encoded[position + 1] != 1 && encoded[position + 1] != 2)) {
+            throw NOT_DECODED;
+        }
+        boolean isIpv4 = encoded[position + 1] == 1;
+        position = familyEnd;
+        int addressesEnd = readHeader(TAG_SEQUENCE, end);
+        if (addressesEnd != end || position == addressesEnd) {
+            throw NOT_DECODED;
+        }
+        while (position < addressesEnd) {
+            readAddress(isIpv4, addressesEnd);
+        }
+    }
+
+    private void readAddress(boolean isIpv4, int limit) {
+        int end = readHeader(TAG_SEQUENCE, limit);
+        int bitStringEnd = readHeader(TAG_BIT_STRING, end);
+        int byteCount = bitStringEnd - position - 1;
+        int bitSize = isIpv4 ? 32 : 128;
+        int padBits = byteCount < 0 ? -1 : encoded[position];
+        if (byteCount < 0 || padBits < 0 || padBits > 7 || (byteCount == 0 && padBits != 0) || byteCount * 8 > bitSize) {
+            throw NOT_DECODED;
+        }
+        position++;
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < byteCount; ++i) {
+            long value = encoded[position++] & 0xff;
+            if (i < 8) {
+                high |= value << (56 - 8 * i);
+            } else {
+                low |= value << (56 - 8 * (i - 8));
+            }
+        }
+        if (padBits > 0 && (encoded[position - 1] & ((1 << padBits) - 1)) != 0) {
+            throw NOT_DECODED;
+        }
+        int length = byteCount * 8 - padBits;
+
+        int maximum = -1;
+        if (position < end) {
+            int integerEnd = readHeader(TAG_INTEGER, end);
+            int integerLength = integerEnd - position;
+            if (integerLength < 1 || integerLength > 2 || encoded[position] < 0
+                    || (integerLength == 2 && (encoded[position] != 0 || encoded[position + 1] >= 0))) {
+                throw NOT_DECODED;
+            }
+            maximum = encoded[integerEnd - 1] & 0xff;
+            position = integerEnd;
+            if (maximum < length || maximum > bitSize) {
+                throw NOT_DECODED;
+            }
+        }
+        if (position != end) {
+            throw NOT_DECODED;
+        }
+        add(isIpv4, high, low, length, maximum);
+    }
+
+    private void add(boolean isIpv4, long high, long low, int length, int maximum) {
+        if (prefixCount == ipv4.length) {
+            int capacity = 2 * prefixCount;
+            ipv4 = Arrays.copyOf(ipv4, capacity);
+            addressHigh = Arrays.copyOf(addressHigh, capacity);
+            addressLow = Arrays.copyOf(addressLow, capacity);
+            prefixLength = Arrays.copyOf(prefixLength, capacity);
+            maximumLength = Arrays.copyOf(maximumLength, capacity);
+        }
+        ipv4[prefixCount] = isIpv4;
+        addressHigh[prefixCount] = high;
+        addressLow[prefixCount] = low;
+        prefixLength[prefixCount] = (byte) length;
+        maximumLength[prefixCount] = (short) maximum;
+        prefixCount++;
+    }
+
+    /**
+     * Reads the tag and definite length of the next element, which must end before <code>limit</code>.
+     *
+     * @return the end of the element, the position is at the start of its content
+     */
+    private int readHeader(int tag, int limit) {
+        if (position >= limit || (encoded[position++] & 0xff) != tag) {
+            throw NOT_DECODED;
+        }
+        int length = encoded[position++] & 0xff;
+        if (length > 0x80) {
+            int lengthBytes = length & 0x7f;
+            if (lengthBytes > 3 || encoded[position] == 0) {
+                throw NOT_DECODED;
+            }
+            length = 0;
+            for (int i = 0; i < lengthBytes; ++i) {
+                length = length << 8 | (encoded[position++] & 0xff);
+            }
+            if (length < 0x80) {
+                throw NOT_DECODED;
+            }
+        } else if (length == 0x80) {
+            // Indefinite length, not DER.
+            throw NOT_DECODED;
+        }
+        int end = position + length;
+        if (end > limit) {
+            throw NOT_DECODED;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,67 @@
+package net.ripe.rpki.commons.crypto.crl;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable index of the serial numbers revoked by a CRL, built once per CRL so revocation checks do not need
+ * the JCA CRL entries.
+ * <p>
+ * Serials that fit in a non-negative <code>long</code> (the common case) are kept in a sorted primitive array,
+ * larger serials (up to 20 octets, RFC 5280 section 4.1.2.2) in a sorted array of {@link BigInteger}s. Lookups
+ * are a binary search and do not allocate.
+ */
+final class RevokedSerialIndex {
+
+    static final RevokedSerialIndex EMPTY = new RevokedSerialIndex(new long[0], new BigInteger[0]);
+
+    private final long[] smallSerials;
+    private final BigInteger[] largeSerials;
+
+    private RevokedSerialIndex(long[] smallSerials, BigInteger[] largeSerials) {
+        this.smallSerials = smallSerials;
+        this.largeSerials = largeSerials;
+    }
+
+    static RevokedSerialIndex of(Iterable<BigInteger> serials) {
+        long[] small = new long[16];
+        int smallCount = 0;
+        List<BigInteger> large = new ArrayList<>();
+        for (BigInteger serial : serials) {
+            if (isSmall(serial)) {
+                if (smallCount == small.length) {
+                    small = Arrays.copyOf(small, smallCount * 2);
+                }
+                small[smallCount++] = serial.longValue();
+            } else {
+                large.add(serial);
+            }
+        }
+        if (smallCount == 0 && large.isEmpty()) {
+            return EMPTY;
+        }
+
+        small = Arrays.copyOf(small, smallCount);
+        Arrays.sort(small);
+        BigInteger[] largeSorted = large.toArray(new BigInteger[0]);
+        Arrays.sort(largeSorted);
+        return new RevokedSerialIndex(small, largeSorted);
+    }
+
+    boolean contains(BigInteger serial) {
+        if (isSmall(serial)) {
+            return Arrays.binarySearch(smallSerials, serial.longValue()) >= 0;
+        }
+        return largeSerials.length > 0 && Arrays.binarySearch(largeSerials, serial) >= 0;
+    }
+
+    int size() {
+        return smallSerials.length + largeSerials.length;
+    }
+
+    private static boolean isSmall(BigInteger serial) {
+        return serial.signum() >= 0 && serial.bitLength() < Long.SIZE;
+    }
+}
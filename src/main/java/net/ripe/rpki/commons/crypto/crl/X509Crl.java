@@ -3,16 +3,13 @@ package net.ripe.rpki.commons.crypto.crl;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
-import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
+import net.ripe.rpki.commons.crypto.util.JcaFactories;
 import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.ValidationString;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
 import org.apache.commons.lang3.Validate;
-import org.bouncycastle.asn1.ASN1Integer;
-import org.bouncycastle.asn1.x509.Extension;
-import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.joda.time.DateTime;
 
 import javax.security.auth.x500.X500Principal;
@@ -27,8 +24,6 @@ import java.security.NoSuchProviderException;
 import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.cert.CRLException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
 import java.security.cert.X509Certificate;
@@ -37,6 +32,7 @@ import java.util.Comparator;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
 
@@ -46,7 +42,15 @@ public class X509Crl implements CertificateRepositoryObject {
 
     private final byte[] encoded;
 
-    private transient X509CRL crl;
+    private transient volatile X509CRL crl;
+
+    // Issuer keys this CRL's signature has been verified against. A CRL is checked once for every object
+    // issued by the same CA, so only the first check needs to do the signature verification.
+    private transient volatile Set<PublicKey> verifiedPublicKeys;
+
+    private transient volatile RevokedSerialIndex revokedSerials;
+
+    private transient volatile X509CrlDerReader reader;
 
     public X509Crl(byte[] encoded) { //NOPMD - ArrayIsStoredDirectly
         Validate.notNull(encoded);
@@ -76,11 +80,26 @@ public class X509Crl implements CertificateRepositoryObject {
         return crl;
     }
 
+    /**
+     * @return a reader for the header fields and revoked certificates that works directly on the encoded CRL,
+     * without decoding all entries like {@link #getCrl()} does
+     */
+    public X509CrlDerReader getReader() {
+        X509CrlDerReader result = reader;
+        if (result == null) {
+            result = new X509CrlDerReader(encoded);
+            reader = result;
+        }
+        return result;
+    }
+
     public static X509Crl parseDerEncoded(byte[] encoded, ValidationResult validationResult) {
         try {
-            X509Crl crl = new X509Crl(makeX509CRLFromEncoded(encoded));
+            // The JCA parser only checks the encoding here. Its CRL object, with an entry for every revoked
+            // certificate, is not retained: the CRL is read with X509CrlDerReader and getCrl() decodes it on demand.
+            makeX509CRLFromEncoded(encoded);
             validationResult.pass(ValidationString.CRL_PARSED);
-            return crl;
+            return new X509Crl(encoded);
         } catch (IllegalArgumentException e) {
             validationResult.error(ValidationString.CRL_PARSED);
             return null;
@@ -93,9 +112,8 @@ public class X509Crl implements CertificateRepositoryObject {
         }
         try {
             try (final ByteArrayInputStream in = new ByteArrayInputStream(encoded)) {
-                final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-                return (X509CRL) factory.generateCRL(in);
-            } catch (final CertificateException | CRLException e) {
+                return (X509CRL) JcaFactories.x509CertificateFactory().generateCRL(in);
+            } catch (final CRLException e) {
                 throw new IllegalArgumentException(e);
             }
         } catch (final IOException e) {
@@ -128,19 +146,21 @@ public class X509Crl implements CertificateRepositoryObject {
 
 
     public byte[] getAuthorityKeyIdentifier() {
-        return X509CertificateUtil.getAuthorityKeyIdentifier(getCrl());
+        return getReader().getAuthorityKeyIdentifier();
     }
 
     public DateTime getThisUpdateTime() {
-        return UTC.dateTime(getCrl().getThisUpdate());
+        return getReader().getThisUpdateTime();
     }
 
     public DateTime getNextUpdateTime() {
-        return UTC.dateTime(getCrl().getNextUpdate());
+        DateTime nextUpdateTime = getReader().getNextUpdateTime();
+        // Kept compatible with converting the missing JCA next update date, which results in the current time.
+        return nextUpdateTime == null ? UTC.dateTime() : nextUpdateTime;
     }
 
     public X500Principal getIssuer() {
-        return getCrl().getIssuerX500Principal();
+        return getReader().getIssuer();
     }
 
     @Override
@@ -179,11 +199,8 @@ public class X509Crl implements CertificateRepositoryObject {
 
     public SortedSet<Entry> getRevokedCertificates() {
         SortedSet<Entry> result = new TreeSet<Entry>();
-        Set<? extends X509CRLEntry> entries = getCrl().getRevokedCertificates();
-        if (entries != null) {
-            for (X509CRLEntry entry : entries) {
-                result.add(new Entry(entry));
-            }
+        for (Entry entry : getReader().getRevokedCertificates()) {
+            result.add(entry);
         }
         return result;
     }
@@ -195,13 +212,8 @@ public class X509Crl implements CertificateRepositoryObject {
 
     public BigInteger getNumber() {
         try {
-            byte[] extensionValue = getCrl().getExtensionValue(Extension.cRLNumber.getId());
-            if (extensionValue == null) {
-                return null;
-            }
-            ASN1Integer number = (ASN1Integer) JcaX509ExtensionUtils.parseExtensionValue(extensionValue);
-            return number.getPositiveValue();
-        } catch (IOException e) {
+            return getReader().getNumber();
+        } catch (IllegalArgumentException e) {
             throw new X509CrlException("cannot get CRLNumber extension from CRL", e);
         }
     }
@@ -222,13 +234,20 @@ public class X509Crl implements CertificateRepositoryObject {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Verifies the signature of this CRL. Successful verifications are remembered per public key, so verifying
+     * the same CRL again with the same key is cheap. This method is thread safe.
+     */
     public void verify(PublicKey publicKey) throws SignatureException {
+        Set<PublicKey> verified = getVerifiedPublicKeys();
+        if (verified.contains(publicKey)) {
+            return;
+        }
         try {
-            getCrl().verify(publicKey, DEFAULT_SIGNATURE_PROVIDER);
+            getReader().verify(publicKey, DEFAULT_SIGNATURE_PROVIDER);
+            verified.add(publicKey);
         } catch (InvalidKeyException e) {
             throw new IllegalArgumentException(e);
-        } catch (CRLException e) {
-            throw new IllegalArgumentException(e);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalArgumentException(e);
         } catch (NoSuchProviderException e) {
@@ -236,8 +255,42 @@ public class X509Crl implements CertificateRepositoryObject {
         }
     }
 
+    private Set<PublicKey> getVerifiedPublicKeys() {
+        Set<PublicKey> result = verifiedPublicKeys;
+        if (result == null) {
+            synchronized (this) {
+                result = verifiedPublicKeys;
+                if (result == null) {
+                    result = ConcurrentHashMap.newKeySet(1);
+                    verifiedPublicKeys = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the certificate is issued by the issuer of this CRL and its serial number is revoked. Like
+     * the JCA implementation this only considers the CRL issuer, indirect CRLs are not used in the RPKI.
+     */
     public boolean isRevoked(X509Certificate certificate) {
-        return getCrl().isRevoked(certificate);
+        return certificate.getIssuerX500Principal().equals(getIssuer()) && isRevoked(certificate.getSerialNumber());
+    }
+
+    /**
+     * @return true if this CRL contains an entry for the serial number
+     */
+    public boolean isRevoked(BigInteger serialNumber) {
+        return getRevokedSerials().contains(serialNumber);
+    }
+
+    private RevokedSerialIndex getRevokedSerials() {
+        RevokedSerialIndex result = revokedSerials;
+        if (result == null) {
+            result = RevokedSerialIndex.of(getReader().getRevokedSerialNumbers());
+            revokedSerials = result;
+        }
+        return result;
     }
 
     public static class X509CRLEntryComparator implements Comparator<X509CRLEntry> {
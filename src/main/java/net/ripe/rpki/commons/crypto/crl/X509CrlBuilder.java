@@ -1,6 +1,5 @@
 package net.ripe.rpki.commons.crypto.crl;
 
-import net.ripe.rpki.commons.crypto.crl.X509Crl.Entry;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import org.apache.commons.lang3.Validate;
@@ -21,7 +20,6 @@ import java.math.BigInteger;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.TreeMap;
 
 public class X509CrlBuilder {
@@ -137,7 +135,11 @@ public class X509CrlBuilder {
      * unnecessary churn.
      */
     public boolean isSatisfiedByEntries(X509Crl crl) {
-        SortedSet<Entry> crlEntries = crl.getRevokedCertificates();
-        return crlEntries.containsAll(entries.values());
+        for (BigInteger serial : entries.keySet()) {
+            if (!crl.isRevoked(serial)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,429 @@
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.rpki.commons.util.UTC;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Time;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a DER encoded CRL (RFC 5280 section 5.1) directly from its encoding, without decoding the list of
+ * revoked certificates up front.
+ * <p>
+ * Construction only walks the top level structure and remembers where the fields are, so the header fields and
+ * the signature check are available without creating an object per revoked certificate. The revoked
+ * certificates are decoded one at a time while iterating over {@link #getRevokedSerialNumbers()} or
+ * {@link #getRevokedCertificates()}.
+ * <p>
+ * This is not a validating parser. Use {@link X509Crl#parseDerEncoded} to check a CRL is well-formed.
+ */
+public final class X509CrlDerReader {
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+    private static final int TAG_OCTET_STRING = 0x04;
+    private static final int TAG_OBJECT_IDENTIFIER = 0x06;
+    private static final int TAG_UTC_TIME = 0x17;
+    private static final int TAG_GENERALIZED_TIME = 0x18;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_EXPLICIT_0 = 0xa0;
+
+    private static final int CRL_VERSION_2 = 1;
+
+    private final byte[] encoded;
+
+    private final int tbsStart;
+    private final int tbsEnd;
+    private final X500Principal issuer;
+    private final int thisUpdateStart;
+    private final int nextUpdateStart;
+    // Content of the revokedCertificates and crlExtensions sequences, start is -1 when absent.
+    private final int revokedStart;
+    private final int revokedEnd;
+    private final int extensionsStart;
+    private final int extensionsEnd;
+    private final ASN1ObjectIdentifier signatureAlgorithm;
+    private final int signatureStart;
+    private final int signatureEnd;
+
+    // Contents of the last header read by header(), only used during construction.
+    private int contentStart;
+    private int contentEnd;
+
+    /**
+     * @param encoded the DER encoded CRL, not copied
+     * @throws IllegalArgumentException when the CRL structure cannot be read
+     */
+    public X509CrlDerReader(byte[] encoded) { //NOPMD - ArrayIsStoredDirectly
+        this.encoded = encoded;
+
+        int pos = header(0, TAG_SEQUENCE, encoded.length);
+        int certificateListEnd = contentEnd;
+
+        tbsStart = pos;
+        pos = header(pos, TAG_SEQUENCE, certificateListEnd);
+        tbsEnd = contentEnd;
+
+        if (tagAt(pos, tbsEnd) == TAG_INTEGER) {
+            pos = header(pos, TAG_INTEGER, tbsEnd);
+            if (contentEnd - contentStart != 1 || encoded[contentStart] != CRL_VERSION_2) {
+                throw new IllegalArgumentException("invalid CRL version");
+            }
+            pos = contentEnd;
+        }
+        int innerSignatureAlgorithmStart = pos;
+        pos = skip(pos, TAG_SEQUENCE, tbsEnd);
+
+        int issuerStart = pos;
+        pos = skip(pos, TAG_SEQUENCE, tbsEnd);
+        issuer = new X500Principal(Arrays.copyOfRange(encoded, issuerStart, pos));
+
+        thisUpdateStart = pos;
+        pos = skipTime(pos, tbsEnd);
+
+        int tag = tagAt(pos, tbsEnd);
+        if (tag == TAG_UTC_TIME || tag == TAG_GENERALIZED_TIME) {
+            nextUpdateStart = pos;
+            pos = skipTime(pos, tbsEnd);
+            tag = tagAt(pos, tbsEnd);
+        } else {
+            nextUpdateStart = -1;
+        }
+
+        if (tag == TAG_SEQUENCE) {
+            header(pos, TAG_SEQUENCE, tbsEnd);
+            revokedStart = contentStart;
+            revokedEnd = contentEnd;
+            pos = contentEnd;
+            tag = tagAt(pos, tbsEnd);
+        } else {
+            revokedStart = -1;
+            revokedEnd = -1;
+        }
+
+        if (tag == TAG_EXPLICIT_0) {
+            pos = header(pos, TAG_EXPLICIT_0, tbsEnd);
+            header(pos, TAG_SEQUENCE, contentEnd);
+            extensionsStart = contentStart;
+            extensionsEnd = contentEnd;
+            pos = contentEnd;
+        } else {
+            extensionsStart = -1;
+            extensionsEnd = -1;
+        }
+        if (pos != tbsEnd) {
+            throw new IllegalArgumentException("unexpected content in CRL tbsCertList");
+        }
+
+        signatureAlgorithm = algorithmOid(pos);
+        pos = skip(pos, TAG_SEQUENCE, certificateListEnd);
+        if (!algorithmOid(innerSignatureAlgorithmStart).equals(signatureAlgorithm)) {
+            throw new IllegalArgumentException("CRL signature algorithm mismatch");
+        }
+
+        header(pos, TAG_BIT_STRING, certificateListEnd);
+        if (contentEnd == contentStart || encoded[contentStart] != 0) {
+            throw new IllegalArgumentException("CRL signature is not a whole number of octets");
+        }
+        signatureStart = contentStart + 1;
+        signatureEnd = contentEnd;
+    }
+
+    public X500Principal getIssuer() {
+        return issuer;
+    }
+
+    public DateTime getThisUpdateTime() {
+        return readTime(thisUpdateStart);
+    }
+
+    /**
+     * @return the next update time, or null when the CRL does not have one
+     */
+    public DateTime getNextUpdateTime() {
+        return nextUpdateStart < 0 ? null : readTime(nextUpdateStart);
+    }
+
+    /**
+     * @return the CRL number, or null when the CRL does not have the extension
+     */
+    public BigInteger getNumber() {
+        byte[] value = findExtensionValue(Extension.cRLNumber);
+        return value == null ? null : ASN1Integer.getInstance(value).getPositiveValue();
+    }
+
+    /**
+     * @return the key identifier of the authority key identifier extension, or null when absent
+     */
+    public byte[] getAuthorityKeyIdentifier() {
+        byte[] value = findExtensionValue(Extension.authorityKeyIdentifier);
+        return value == null ? null : AuthorityKeyIdentifier.getInstance(value).getKeyIdentifier();
+    }
+
+    public ASN1ObjectIdentifier getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    /**
+     * Verifies the signature over the encoded tbsCertList, without decoding it.
+     */
+    public void verify(PublicKey publicKey, String signatureProvider) throws SignatureException, NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+        Signature signature = Signature.getInstance(signatureAlgorithm.getId(), signatureProvider);
+        signature.initVerify(publicKey);
+        signature.update(encoded, tbsStart, tbsEnd - tbsStart);
+        if (!signature.verify(encoded, signatureStart, signatureEnd - signatureStart)) {
+            throw new SignatureException("Signature does not match.");
+        }
+    }
+
+    /**
+     * @return the serial numbers of the revoked certificates in CRL order, decoded while iterating
+     */
+    public Iterable<BigInteger> getRevokedSerialNumbers() {
+        return () -> new RevokedCertificateIterator<BigInteger>() {
+            @Override
+            BigInteger read(int entryContentStart, int entryContentEnd) {
+                return readSerialNumber(entryContentStart, entryContentEnd);
+            }
+        };
+    }
+
+    /**
+     * @return the revoked certificates in CRL order, decoded while iterating
+     */
+    public Iterable<X509Crl.Entry> getRevokedCertificates() {
+        return () -> new RevokedCertificateIterator<X509Crl.Entry>() {
+            @Override
+            X509Crl.Entry read(int entryContentStart, int entryContentEnd) {
+                BigInteger serialNumber = readSerialNumber(entryContentStart, entryContentEnd);
+                int revocationDateStart = skip(entryContentStart, TAG_INTEGER, entryContentEnd);
+                return new X509Crl.Entry(serialNumber, readTime(revocationDateStart));
+            }
+        };
+    }
+
+    private abstract class RevokedCertificateIterator<T> implements Iterator<T> {
+        private int pos = revokedStart;
+
+        @Override
+        public boolean hasNext() {
+            return pos >= 0 && pos < revokedEnd;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int entryContentStart = headerContentStart(pos, TAG_SEQUENCE, revokedEnd);
+            int entryContentEnd = entryContentStart + length(pos + 1, revokedEnd);
+            pos = entryContentEnd;
+            return read(entryContentStart, entryContentEnd);
+        }
+
+        abstract T read(int entryContentStart, int entryContentEnd);
+    }
+
+    private BigInteger readSerialNumber(int entryContentStart, int entryContentEnd) {
+        int start = headerContentStart(entryContentStart, TAG_INTEGER, entryContentEnd);
+        int end = start + length(entryContentStart + 1, entryContentEnd);
+        if (end == start) {
+            throw new IllegalArgumentException("empty CRL entry serial number");
+        }
+        return new BigInteger(Arrays.copyOfRange(encoded, start, end));
+    }
+
+    private DateTime readTime(int start) {
+        int end = skipTime(start, encoded.length);
+        // DER times are YYMMDDHHMMSSZ (RFC 5280 section 4.1.2.5.1) or YYYYMMDDHHMMSSZ, anything else is left to
+        // BouncyCastle.
+        int length = end - start - 2;
+        int tag = encoded[start] & 0xff;
+        if (encoded[end - 1] == 'Z' && (tag == TAG_UTC_TIME && length == 13 || tag == TAG_GENERALIZED_TIME && length == 15)) {
+            int yearDigits = tag == TAG_UTC_TIME ? 2 : 4;
+            int pos = start + 2 + yearDigits;
+            int year = digits(start + 2, yearDigits);
+            int month = digits(pos, 2);
+            int day = digits(pos + 2, 2);
+            int hour = digits(pos + 4, 2);
+            int minute = digits(pos + 6, 2);
+            int second = digits(pos + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                if (tag == TAG_UTC_TIME) {
+                    year += year < 50 ? 2000 : 1900;
+                }
+                try {
+                    return new DateTime(year, month, day, hour, minute, second, DateTimeZone.UTC);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("invalid time in CRL", e);
+                }
+            }
+        }
+        try {
+            return UTC.dateTime(Time.getInstance(ASN1Primitive.fromByteArray(Arrays.copyOfRange(encoded, start, end))).getDate());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid time in CRL", e);
+        }
+    }
+
+    /**
+     * @return the decimal value of <code>count</code> ASCII digits, or -1 when one of them is not a digit
+     */
+    private int digits(int pos, int count) {
+        int result = 0;
+        for (int i = pos; i < pos + count; ++i) {
+            int digit = encoded[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private ASN1ObjectIdentifier algorithmOid(int algorithmIdentifierStart) {
+        int start = headerContentStart(algorithmIdentifierStart, TAG_SEQUENCE, encoded.length);
+        int end = skip(start, TAG_OBJECT_IDENTIFIER, start + length(algorithmIdentifierStart + 1, encoded.length));
+        return ASN1ObjectIdentifier.getInstance(Arrays.copyOfRange(encoded, start, end));
+    }
+
+    /**
+     * @return the contents of the extnValue octet string of the first extension with the given OID, or null
+     */
+    private byte[] findExtensionValue(ASN1ObjectIdentifier oid) {
+        if (extensionsStart < 0) {
+            return null;
+        }
+        byte[] encodedOid = encodeOid(oid);
+        int pos = extensionsStart;
+        while (pos < extensionsEnd) {
+            int extensionStart = headerContentStart(pos, TAG_SEQUENCE, extensionsEnd);
+            int extensionEnd = extensionStart + length(pos + 1, extensionsEnd);
+            int oidEnd = skip(extensionStart, TAG_OBJECT_IDENTIFIER, extensionEnd);
+            if (regionEquals(extensionStart, oidEnd, encodedOid)) {
+                // Skip the optional critical flag, the value is always the last element.
+                int valuePos = oidEnd;
+                while (tagAt(valuePos, extensionEnd) != TAG_OCTET_STRING) {
+                    valuePos = skip(valuePos, tagAt(valuePos, extensionEnd), extensionEnd);
+                }
+                int valueStart = headerContentStart(valuePos, TAG_OCTET_STRING, extensionEnd);
+                return Arrays.copyOfRange(encoded, valueStart, valueStart + length(valuePos + 1, extensionEnd));
+            }
+            pos = extensionEnd;
+        }
+        return null;
+    }
+
+    private static byte[] encodeOid(ASN1ObjectIdentifier oid) {
+        try {
+            return oid.getEncoded();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean regionEquals(int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; ++i) {
+            if (encoded[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int tagAt(int pos, int limit) {
+        return pos < limit ? encoded[pos] & 0xff : -1;
+    }
+
+    private int skipTime(int pos, int limit) {
+        int tag = tagAt(pos, limit);
+        if (tag != TAG_UTC_TIME && tag != TAG_GENERALIZED_TIME) {
+            throw new IllegalArgumentException("expected time in CRL at offset " + pos);
+        }
+        return skip(pos, tag, limit);
+    }
+
+    private int skip(int pos, int expectedTag, int limit) {
+        return headerContentStart(pos, expectedTag, limit) + length(pos + 1, limit);
+    }
+
+    /**
+     * Reads the tag and length at <code>pos</code> and sets {@link #contentStart} and {@link #contentEnd}.
+     *
+     * @return the start of the contents
+     */
+    private int header(int pos, int expectedTag, int limit) {
+        contentStart = headerContentStart(pos, expectedTag, limit);
+        contentEnd = contentStart + length(pos + 1, limit);
+        return contentStart;
+    }
+
+    private int headerContentStart(int pos, int expectedTag, int limit) {
+        if (tagAt(pos, limit) != expectedTag) {
+            throw new IllegalArgumentException(String.format("expected tag 0x%02x in CRL at offset %d", expectedTag, pos));
+        }
+        int first = tagAt(pos + 1, limit);
+        if (first < 0x80) {
+            return pos + 2;
+        }
+        return pos + 2 + (first & 0x7f);
+    }
+
+    /**
+     * @param pos the position of the first length octet
+     * @return the length of the contents, checked to fit within <code>limit</code>
+     */
+    private int length(int pos, int limit) {
+        int first = tagAt(pos, limit);
+        if (first < 0) {
+            throw new IllegalArgumentException("truncated CRL");
+        }
+        int length;
+        int contentStart;
+        if (first < 0x80) {
+            length = first;
+            contentStart = pos + 1;
+        } else {
+            int octets = first & 0x7f;
+            if (octets == 0 || octets > 4) {
+                throw new IllegalArgumentException("unsupported length encoding in CRL at offset " + pos);
+            }
+            length = 0;
+            for (int i = 1; i <= octets; ++i) {
+                int octet = tagAt(pos + i, limit);
+                if (octet < 0) {
+                    throw new IllegalArgumentException("truncated CRL");
+                }
+                length = (length << 8) | octet;
+            }
+            if (length < 0) {
+                throw new IllegalArgumentException("unsupported length encoding in CRL at offset " + pos);
+            }
+            contentStart = pos + 1 + octets;
+        }
+        if (length > limit - contentStart) {
+            throw new IllegalArgumentException("truncated CRL");
+        }
+        return length;
+    }
+}
@@ -34,6 +34,9 @@ public class X509CrlValidator implements CertificateRepositoryObjectValidator<X5
     public void validate(String location, X509Crl crl) {
         result.setLocation(new ValidationLocation(location));
         checkSignature(crl);
+        if (result.isVerdictReached()) {
+            return;
+        }
         checkValidityTimes(crl);
     }
 
@@ -42,16 +45,16 @@ public class X509CrlValidator implements CertificateRepositoryObjectValidator<X5
         DateTime nextUpdateTime = crl.getNextUpdateTime();
         DateTime thisUpdateTime = crl.getThisUpdateTime();
 
-        result.rejectIfTrue(thisUpdateTime.isAfter(now), ValidationString.CRL_THIS_UPDATE_AFTER_NOW, thisUpdateTime.toString());
+        result.rejectIfTrue(thisUpdateTime.isAfter(now), ValidationString.CRL_THIS_UPDATE_AFTER_NOW, thisUpdateTime);
         if (options.isStrictManifestCRLValidityChecks()) {
             boolean postGracePeriod = now.isAfter(nextUpdateTime.plus(options.getCrlMaxStalePeriod()));
             if (postGracePeriod) {
-                result.error(ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
+                result.error(ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime);
             } else {
-                result.warnIfTrue(now.isAfter(nextUpdateTime), ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
+                result.warnIfTrue(now.isAfter(nextUpdateTime), ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime);
             }
         } else {
-            result.warnIfTrue(now.isAfter(nextUpdateTime), ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
+            result.warnIfTrue(now.isAfter(nextUpdateTime), ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime);
         }
     }
 
@@ -0,0 +1,144 @@
+package net.ripe.rpki.commons.crypto.rfc3779;
+
+import com.google.common.collect.Iterables;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.UniqueIpResource;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Immutable view of an {@link IpResourceSet}: the normalized resources in a sorted array, so they can be shared
+ * without copying and checked for containment without building another set.
+ * <p>
+ * The resources are ordered by type and value, and never overlap or touch, just like in {@link IpResourceSet}.
+ */
+public final class ResourceSetView implements Iterable<IpResource>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final ResourceSetView EMPTY = new ResourceSetView(new IpResource[0]);
+
+    private final IpResource[] resources;
+
+    private ResourceSetView(IpResource[] resources) {
+        this.resources = resources;
+    }
+
+    public static ResourceSetView of(IpResourceSet resources) {
+        return resources.isEmpty() ? EMPTY : new ResourceSetView(Iterables.toArray(resources, IpResource.class));
+    }
+
+    public boolean isEmpty() {
+        return resources.length == 0;
+    }
+
+    /**
+     * @return the number of (normalized) resource ranges
+     */
+    public int size() {
+        return resources.length;
+    }
+
+    public boolean containsType(IpResourceType type) {
+        for (IpResource resource : resources) {
+            if (resource.getType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(IpResource resource) {
+        int index = ceiling(resource.getStart(), 0);
+        return index < resources.length && resources[index].contains(resource);
+    }
+
+    public boolean contains(IpResourceSet that) {
+        return containsAll(that);
+    }
+
+    /**
+     * Checks that every resource is contained in this set in a single merge pass when <code>that</code> is sorted
+     * by start, like the prefixes of most ROAs. Resources that are out of order are located with a binary search.
+     */
+    public boolean containsAll(Iterable<? extends IpResource> that) {
+        int index = 0;
+        UniqueIpResource previousStart = null;
+        for (IpResource resource : that) {
+            UniqueIpResource start = resource.getStart();
+            if (previousStart != null && start.compareTo(previousStart) < 0) {
+                index = 0;
+            }
+            previousStart = start;
+
+            // Every resource ending before the start of this one cannot contain it, nor any resource after it.
+            if (index < resources.length && resources[index].getEnd().compareTo(start) < 0) {
+                index = ceiling(start, index + 1);
+            }
+            if (index == resources.length || !resources[index].contains(resource)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a new, mutable copy of the resources
+     */
+    public IpResourceSet toIpResourceSet() {
+        return new IpResourceSet(Arrays.asList(resources));
+    }
+
+    /**
+     * @return an iterator over the resources in order, which does not support removal
+     */
+    @Override
+    public Iterator<IpResource> iterator() {
+        return Arrays.asList(resources).iterator();
+    }
+
+    /**
+     * @return the index of the first resource from <code>from</code> that ends at or after <code>point</code>
+     */
+    private int ceiling(UniqueIpResource point, int from) {
+        int low = from;
+        int high = resources.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (resources[middle].getEnd().compareTo(point) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ResourceSetView && Arrays.equals(resources, ((ResourceSetView) obj).resources);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(resources);
+    }
+
+    /**
+     * @return the resources in the same format as {@link IpResourceSet#toString()}
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (IpResource resource : resources) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(resource);
+        }
+        return result.toString();
+    }
+}
@@ -10,6 +10,7 @@ import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
 import org.bouncycastle.cms.CMSSignedDataParser;
 import org.bouncycastle.operator.DigestCalculatorProvider;
 import org.bouncycastle.operator.bc.BcDigestCalculatorProvider;
@@ -116,4 +117,13 @@ public final class BouncyCastleUtil {
         }
         return result;
     }
+
+    public static List<? extends X509CRL> extractCrls(CMSSignedData signedData) throws StoreException, CRLException {
+        Collection<X509CRLHolder> holders = signedData.getCRLs().getMatches(null);
+        List<X509CRL> result = new ArrayList<X509CRL>();
+        for (X509CRLHolder holder : holders) {
+            result.add(holderToCrl(holder));
+        }
+        return result;
+    }
 }
@@ -15,10 +15,21 @@ import net.ripe.rpki.commons.crypto.x509cert.X509GenericCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
 import net.ripe.rpki.commons.util.RepositoryObjectType;
 import net.ripe.rpki.commons.validation.ValidationChecks;
+import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationResult;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
 public final class CertificateRepositoryObjectFactory {
 
+    // Upper bound on the number of objects parsed by a single task of a batch. Small batches use one object per
+    // task so they are still spread over all threads.
+    private static final int MAX_OBJECTS_PER_TASK = 64;
+    private static final int MIN_TASKS_PER_BATCH = 256;
 
     private CertificateRepositoryObjectFactory() {
     }
@@ -54,12 +65,61 @@ public final class CertificateRepositoryObjectFactory {
         throw new IllegalArgumentException("Unrecognized repository object type: " + objectType);
     }
 
+    /**
+     * Parses a batch of objects in parallel on the given executor, for example a {@link java.util.concurrent.ForkJoinPool}.
+     * Every object is parsed with its own {@link ValidationResult}, using the same settings as
+     * <code>validationResult</code>, so the worker threads do not share any state. When all objects are parsed
+     * their results are added to <code>validationResult</code> on the calling thread.
+     *
+     * @param encodedObjects the DER encoded objects by location name, the object type is determined from the
+     *                       name like {@link #createCertificateRepositoryObject(byte[], ValidationResult)} does
+     * @return the parsed objects by location name, in the iteration order of <code>encodedObjects</code>. The
+     * value is {@code null} for objects whose contents can not be parsed.
+     */
+    public static Map<String, CertificateRepositoryObject> createCertificateRepositoryObjects(Map<String, byte[]> encodedObjects, ValidationResult validationResult, Executor executor) {
+        int count = encodedObjects.size();
+        String[] names = encodedObjects.keySet().toArray(new String[0]);
+        byte[][] encoded = encodedObjects.values().toArray(new byte[0][]);
+        CertificateRepositoryObject[] objects = new CertificateRepositoryObject[count];
+        ValidationResult[] results = new ValidationResult[count];
+
+        int objectsPerTask = Math.max(1, Math.min(MAX_OBJECTS_PER_TASK, count / MIN_TASKS_PER_BATCH));
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[(count + objectsPerTask - 1) / objectsPerTask];
+        for (int task = 0; task < tasks.length; ++task) {
+            int start = task * objectsPerTask;
+            int end = Math.min(count, start + objectsPerTask);
+            tasks[task] = CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; ++i) {
+                    results[i] = validationResult.newWithSameSettings(new ValidationLocation(names[i]));
+                    objects[i] = createCertificateRepositoryObject(encoded[i], results[i]);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        ValidationLocation location = validationResult.getCurrentLocation();
+        Map<String, CertificateRepositoryObject> parsed = new LinkedHashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; ++i) {
+            validationResult.addAll(results[i]);
+            parsed.put(names[i], objects[i]);
+        }
+        validationResult.setLocation(location);
+        return parsed;
+    }
+
     private static X509Crl parseCrl(byte[] encoded, ValidationResult validationResult) {
         return X509Crl.parseDerEncoded(encoded, validationResult);
     }
 
     private static X509GenericCertificate parseX509Certificate(byte[] encoded, ValidationResult validationResult) {
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = validationResult.newWithSameSettings(validationResult.getCurrentLocation());
         X509GenericCertificate cert = X509ResourceCertificateParser.parseCertificate(temp, encoded);
         validationResult.addAll(temp);
         return cert;
@@ -67,7 +127,7 @@ public final class CertificateRepositoryObjectFactory {
 
     private static RoaCms parseRoa(byte[] encoded, ValidationResult validationResult) {
         final RoaCmsParser parser = new RoaCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = validationResult.newWithSameSettings(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         validationResult.addAll(temp);
         if (parser.isSuccess()) {
@@ -79,7 +139,7 @@ public final class CertificateRepositoryObjectFactory {
 
     private static ManifestCms parseManifest(byte[] encoded, ValidationResult validationResult) {
         final ManifestCmsParser parser = new ManifestCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = validationResult.newWithSameSettings(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         validationResult.addAll(temp);
         if (parser.isSuccess()) {
@@ -91,7 +151,7 @@ public final class CertificateRepositoryObjectFactory {
 
     private static GhostbustersCms parseGbr(byte[] encoded, ValidationResult validationResult) {
         final GhostbustersCmsParser parser = new GhostbustersCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = validationResult.newWithSameSettings(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         validationResult.addAll(temp);
         if (parser.isSuccess()) {
@@ -103,7 +163,7 @@ public final class CertificateRepositoryObjectFactory {
 
     private static AspaCms parseAspa(byte[] encoded, ValidationResult validationResult) {
         final AspaCmsParser parser = new AspaCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = validationResult.newWithSameSettings(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         validationResult.addAll(temp);
         if (parser.isSuccess()) {
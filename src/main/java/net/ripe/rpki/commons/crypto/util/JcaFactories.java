@@ -0,0 +1,49 @@
+package net.ripe.rpki.commons.crypto.util;
+
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+
+/**
+ * Per-thread cache of the JCA factories used on the parse paths.
+ * <p>
+ * {@link CertificateFactory#getInstance(String)} and {@link KeyFactory#getInstance(String)} go through the
+ * provider registry on every call, which is both slow and contended when many threads parse objects. The
+ * factory instances themselves are not guaranteed to be thread safe, so each thread gets its own.
+ */
+public final class JcaFactories {
+
+    private static final ThreadLocal<CertificateFactory> X509_CERTIFICATE_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (CertificateException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private static final ThreadLocal<KeyFactory> RSA_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyFactory.getInstance(KeyPairFactory.ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private JcaFactories() {
+    }
+
+    /**
+     * @return the X.509 certificate and CRL factory for the current thread
+     */
+    public static CertificateFactory x509CertificateFactory() {
+        return X509_CERTIFICATE_FACTORY.get();
+    }
+
+    /**
+     * @return the RSA key factory for the current thread
+     */
+    public static KeyFactory rsaKeyFactory() {
+        return RSA_KEY_FACTORY.get();
+    }
+}
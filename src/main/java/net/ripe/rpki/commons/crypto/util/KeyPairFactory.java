@@ -2,7 +2,6 @@ package net.ripe.rpki.commons.crypto.util;
 
 import java.math.BigInteger;
 import java.security.InvalidAlgorithmParameterException;
-import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
@@ -49,8 +48,8 @@ public class KeyPairFactory {
      */
     public static PublicKey decodePublicKey(byte[] encoded) {
         try {
-            return KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
-        } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+            return JcaFactories.rsaKeyFactory().generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (InvalidKeySpecException e) {
             throw new KeyPairFactoryException(e);
         }
     }
@@ -64,8 +63,8 @@ public class KeyPairFactory {
      */
     public static PrivateKey decodePrivateKey(byte[] encoded) {
         try {
-            return KeyFactory.getInstance(ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(encoded));
-        } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+            return JcaFactories.rsaKeyFactory().generatePrivate(new PKCS8EncodedKeySpec(encoded));
+        } catch (InvalidKeySpecException e) {
             throw new KeyPairFactoryException(e);
         }
     }
@@ -2,6 +2,7 @@ package net.ripe.rpki.commons.crypto.x509cert;
 
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc8209.RouterExtensionEncoder;
+import net.ripe.rpki.commons.crypto.util.JcaFactories;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import org.apache.commons.lang3.ArrayUtils;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
@@ -11,7 +12,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.ECPublicKey;
@@ -50,7 +50,9 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
         if (!validationResult.hasFailureForCurrentLocation()) {
             validateSignatureAlgorithm();
             validatePublicKey();
-            doTypeSpecificValidation();
+            if (!validationResult.isVerdictReached()) {
+                doTypeSpecificValidation();
+            }
         }
     }
 
@@ -107,7 +109,7 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
     }
 
     public boolean isSuccess() {
-        return !result.hasFailures();
+        return !result.hasFailureForCurrentLocation();
     }
 
     public abstract T getCertificate();
@@ -124,8 +126,7 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
 
     public static X509Certificate parseX509Certificate(byte[] encoded) {
         try (InputStream input = new ByteArrayInputStream(encoded)) {
-            final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-            return (X509Certificate) factory.generateCertificate(input);
+            return (X509Certificate) JcaFactories.x509CertificateFactory().generateCertificate(input);
         } catch (final CertificateException | IOException e) {
             return null;
         }
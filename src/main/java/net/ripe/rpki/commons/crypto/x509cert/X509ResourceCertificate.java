@@ -8,6 +8,7 @@ import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionParser;
+import net.ripe.rpki.commons.crypto.rfc3779.ResourceSetView;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -32,6 +33,7 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
 
     private final EnumSet<IpResourceType> inheritedResourceTypes;
     private final IpResourceSet resources;
+    private transient ResourceSetView resourcesView;
     private Boolean revoked;
 
 
@@ -66,10 +68,26 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
         Validate.isTrue(!inheritedResourceTypes.isEmpty() || !resources.isEmpty(), "empty resource set");
     }
 
+    /**
+     * @return a mutable copy of the resources. Use {@link #getResourcesView()} to only read the resources.
+     */
     public IpResourceSet getResources() {
         return new IpResourceSet(resources);
     }
 
+    /**
+     * @return the (non-inherited) resources, without copying them on every call
+     */
+    public ResourceSetView getResourcesView() {
+        ResourceSetView result = resourcesView;
+        if (result == null) {
+            // Immutable, so it is safe to create it more than once when called concurrently.
+            result = ResourceSetView.of(resources);
+            resourcesView = result;
+        }
+        return result;
+    }
+
     public EnumSet<IpResourceType> getInheritedResourceTypes() {
         return inheritedResourceTypes;
     }
@@ -166,6 +184,6 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
     }
 
     public boolean containsResources(IpResourceSet that) {
-        return resources.contains(that);
+        return getResourcesView().contains(that);
     }
 }
@@ -0,0 +1,53 @@
+package net.ripe.rpki.commons.validation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns validation check keys to small integer codes, used by the compact storage mode of
+ * {@link ValidationResult}.
+ * <p>
+ * Check keys are the constants from {@link ValidationString}, so the table stays small. For every code a
+ * single shared passed {@link ValidationCheck} (without parameters) is kept, so passed checks can be
+ * presented without allocating.
+ */
+final class ValidationCheckKeys {
+
+    private static final ConcurrentHashMap<String, Integer> CODES = new ConcurrentHashMap<>();
+
+    private static volatile ValidationCheck[] passedChecks = new ValidationCheck[256];
+
+    private ValidationCheckKeys() {
+    }
+
+    static int codeOf(String key) {
+        Integer code = CODES.get(key);
+        return code != null ? code : register(key);
+    }
+
+    static String keyOf(int code) {
+        return passedChecks[code].getKey();
+    }
+
+    static ValidationCheck passed(int code) {
+        return passedChecks[code];
+    }
+
+    private static synchronized int register(String key) {
+        Integer existing = CODES.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int code = CODES.size();
+        ValidationCheck[] checks = passedChecks;
+        if (code == checks.length) {
+            checks = Arrays.copyOf(checks, checks.length * 2);
+        }
+        checks[code] = new ValidationCheck(ValidationStatus.PASSED, key);
+        // Publish the check before the code, readers look up the code first.
+        passedChecks = checks;
+        CODES.put(key, code);
+        return code;
+    }
+}
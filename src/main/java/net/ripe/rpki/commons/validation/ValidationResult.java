@@ -1,24 +1,28 @@
 package net.ripe.rpki.commons.validation;
 
-import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.joda.time.DateTimeUtils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 
 public final class ValidationResult implements Serializable {
 
-    private static final long serialVersionUID = 2L;
+    private static final long serialVersionUID = 3L;
 
     private static final String[] EMPTY_PARAM = {};
 
@@ -26,10 +30,18 @@ public final class ValidationResult implements Serializable {
 
     private ValidationLocation currentLocation;
 
+    // Results of the current location, so recording a check does not look up the location every time. Entries are
+    // never removed from the results, so this stays valid until the location changes.
+    private transient ResultsPerLocation currentResults;
+
     private Map<ValidationLocation, List<ValidationMetric>> metrics = new TreeMap<>();
 
     private boolean storingPassingChecks = true;
 
+    private boolean compactStorage = false;
+
+    private boolean verdictOnly = false;
+
     private ValidationResult(ValidationLocation location) {
         setLocation(location);
     }
@@ -46,11 +58,29 @@ public final class ValidationResult implements Serializable {
         return new ValidationResult(location);
     }
 
+    /**
+     * Creates an empty result with the same settings as this one (see {@link #withoutStoringPassingChecks()},
+     * {@link #withCompactStorage()} and {@link #withVerdictOnly()}), so objects can be validated separately, for
+     * example on other threads, and their results added to this one afterwards with {@link #addAll(ValidationResult)}.
+     */
+    public ValidationResult newWithSameSettings(ValidationLocation location) {
+        ValidationResult result = withLocation(location);
+        if (verdictOnly) {
+            result.withVerdictOnly();
+        } else if (!storingPassingChecks) {
+            result.withoutStoringPassingChecks();
+        }
+        if (compactStorage) {
+            result.withCompactStorage();
+        }
+        return result;
+    }
+
     public ValidationResult withoutStoringPassingChecks() {
         if (this.storingPassingChecks) {
             this.storingPassingChecks = false;
             for (ResultsPerLocation entry : this.results.values()) {
-                entry.passed.clear();
+                entry.clearPassed();
             }
         }
         return this;
@@ -60,13 +90,65 @@ public final class ValidationResult implements Serializable {
         return storingPassingChecks;
     }
 
+    /**
+     * Switches to compact storage: passed checks are recorded as interned key codes in a primitive array
+     * instead of as {@link ValidationCheck} objects, and their parameters are dropped. Warnings and errors are
+     * stored with their parameters as before. The accessors return the same checks, with passed checks
+     * presented as shared instances without parameters.
+     */
+    public ValidationResult withCompactStorage() {
+        if (!this.compactStorage) {
+            this.compactStorage = true;
+            for (ResultsPerLocation entry : this.results.values()) {
+                entry.compactPassed();
+            }
+        }
+        return this;
+    }
+
+    public boolean isCompactStorage() {
+        return compactStorage;
+    }
+
+    /**
+     * Switches to verdict-only mode, for callers that only need to know whether the validated objects are valid.
+     * Passed checks are not stored and warnings and errors are recorded without parameters; parameters passed as
+     * objects are not formatted at all. Once an error is recorded for a location the verdict on that location is
+     * reached (see {@link #isVerdictReached()}) and parsers and validators skip their remaining checks of it.
+     */
+    public ValidationResult withVerdictOnly() {
+        this.verdictOnly = true;
+        return withoutStoringPassingChecks();
+    }
+
+    public boolean isVerdictOnly() {
+        return verdictOnly;
+    }
+
+    /**
+     * @return true when in verdict-only mode and an error has been recorded for the current location, so further
+     * checks of the object at this location cannot change its outcome and can be skipped. Errors of other
+     * locations do not count, so one result can be shared by the objects of a repository.
+     */
+    public boolean isVerdictReached() {
+        if (!verdictOnly) {
+            return false;
+        }
+        ResultsPerLocation current = currentResults != null ? currentResults : results.get(currentLocation);
+        return current != null && !current.error.isEmpty();
+    }
+
     public ValidationResult setLocation(ValidationLocation location) {
         currentLocation = location;
+        currentResults = null;
         return this;
     }
 
     private ResultsPerLocation getCurrentResults() {
-        return results.computeIfAbsent(currentLocation, (x) -> new ResultsPerLocation());
+        if (currentResults == null) {
+            currentResults = results.computeIfAbsent(currentLocation, (x) -> new ResultsPerLocation());
+        }
+        return currentResults;
     }
 
     public ValidationResult pass(String key) {
@@ -74,8 +156,13 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult pass(String key, String... param) {
-        if (storingPassingChecks) {
-            getCurrentResults().passed.add(new ValidationCheck(ValidationStatus.PASSED, key, param));
+        if (!storingPassingChecks) {
+            return this;
+        }
+        if (compactStorage) {
+            getCurrentResults().addPassed(ValidationCheckKeys.codeOf(key));
+        } else {
+            getCurrentResults().addPassed(new ValidationCheck(ValidationStatus.PASSED, key, param));
         }
         return this;
     }
@@ -84,8 +171,16 @@ public final class ValidationResult implements Serializable {
         return warn(key, EMPTY_PARAM);
     }
 
+    /**
+     * Records a warning with parameters that are only formatted (using {@link String#valueOf(Object)}) when they
+     * are stored.
+     */
+    public ValidationResult warn(String key, Object... param) {
+        return warn(key, formatParams(!verdictOnly, param));
+    }
+
     public ValidationResult warn(String key, String... param) {
-        getCurrentResults().warning.add(new ValidationCheck(ValidationStatus.WARNING, key, param));
+        getCurrentResults().addWarning(new ValidationCheck(ValidationStatus.WARNING, key, verdictOnly ? EMPTY_PARAM : param));
         return this;
     }
 
@@ -93,8 +188,16 @@ public final class ValidationResult implements Serializable {
         return error(key, EMPTY_PARAM);
     }
 
+    /**
+     * Records an error with parameters that are only formatted (using {@link String#valueOf(Object)}) when they
+     * are stored.
+     */
+    public ValidationResult error(String key, Object... param) {
+        return error(key, formatParams(!verdictOnly, param));
+    }
+
     public ValidationResult error(String key, String... param) {
-        getCurrentResults().error.add(new ValidationCheck(ValidationStatus.ERROR, key, param));
+        getCurrentResults().addError(new ValidationCheck(ValidationStatus.ERROR, key, verdictOnly ? EMPTY_PARAM : param));
         return this;
     }
 
@@ -102,8 +205,12 @@ public final class ValidationResult implements Serializable {
         return warnIfFalse(condition, key, EMPTY_PARAM);
     }
 
+    public boolean warnIfFalse(boolean condition, String key, Object... param) {
+        return warnIfFalse(condition, key, formatParams(condition ? isStoringPassedParams() : !verdictOnly, param));
+    }
+
     public boolean warnIfFalse(boolean condition, String key, String... param) {
-        Validate.notNull(key, "key is required");
+        Objects.requireNonNull(key, "key is required");
         if (condition) {
             pass(key, param);
         } else {
@@ -116,6 +223,10 @@ public final class ValidationResult implements Serializable {
         return warnIfTrue(condition, key, EMPTY_PARAM);
     }
 
+    public boolean warnIfTrue(boolean condition, String key, Object... param) {
+        return warnIfFalse(!condition, key, param);
+    }
+
     public boolean warnIfTrue(boolean condition, String key, String... param) {
         return warnIfFalse(!condition, key, param);
     }
@@ -142,7 +253,7 @@ public final class ValidationResult implements Serializable {
 
     public ValidationResult rejectForLocation(ValidationLocation location, String key, String... param) {
         ResultsPerLocation resultsPerLocation = results.computeIfAbsent(location, (x) -> new ResultsPerLocation());
-        resultsPerLocation.error.add(new ValidationCheck(ValidationStatus.ERROR, key, param));
+        resultsPerLocation.addError(new ValidationCheck(ValidationStatus.ERROR, key, verdictOnly ? EMPTY_PARAM : param));
         return this;
     }
 
@@ -152,7 +263,7 @@ public final class ValidationResult implements Serializable {
 
     public ValidationResult warnForLocation(ValidationLocation location, String key, String... param) {
         ResultsPerLocation resultsPerLocation = results.computeIfAbsent(location, (x) -> new ResultsPerLocation());
-        resultsPerLocation.warning.add(new ValidationCheck(ValidationStatus.WARNING, key, param));
+        resultsPerLocation.addWarning(new ValidationCheck(ValidationStatus.WARNING, key, verdictOnly ? EMPTY_PARAM : param));
         return this;
     }
 
@@ -160,8 +271,12 @@ public final class ValidationResult implements Serializable {
         return rejectIfFalse(condition, key, EMPTY_PARAM);
     }
 
+    public boolean rejectIfFalse(boolean condition, String key, Object... param) {
+        return rejectIfFalse(condition, key, formatParams(condition ? isStoringPassedParams() : !verdictOnly, param));
+    }
+
     public boolean rejectIfFalse(boolean condition, String key, String... param) {
-        Validate.notNull(key, "key is required");
+        Objects.requireNonNull(key, "key is required");
         if (condition) {
             pass(key, param);
         } else {
@@ -174,6 +289,10 @@ public final class ValidationResult implements Serializable {
         return rejectIfTrue(condition, key, EMPTY_PARAM);
     }
 
+    public boolean rejectIfTrue(boolean condition, String key, Object... param) {
+        return rejectIfFalse(!condition, key, param);
+    }
+
     public boolean rejectIfTrue(boolean condition, String key, String... param) {
         return rejectIfFalse(!condition, key, param);
     }
@@ -194,6 +313,21 @@ public final class ValidationResult implements Serializable {
         return rejectIfTrue(object != null, key, param);
     }
 
+    private boolean isStoringPassedParams() {
+        return storingPassingChecks && !compactStorage;
+    }
+
+    private static String[] formatParams(boolean stored, Object[] params) {
+        if (!stored || params.length == 0) {
+            return EMPTY_PARAM;
+        }
+        String[] formatted = new String[params.length];
+        for (int i = 0; i < params.length; ++i) {
+            formatted[i] = String.valueOf(params[i]);
+        }
+        return formatted;
+    }
+
     public ValidationResult addMetric(String name, String value) {
         if (!metrics.containsKey(currentLocation)) {
             metrics.put(currentLocation, new ArrayList<>());
@@ -283,7 +417,7 @@ public final class ValidationResult implements Serializable {
         if (resultsPerLocation != null) {
             allChecks.addAll(resultsPerLocation.error);
             allChecks.addAll(resultsPerLocation.warning);
-            allChecks.addAll(resultsPerLocation.passed);
+            resultsPerLocation.addPassedChecksTo(allChecks);
         }
 
         return allChecks;
@@ -319,37 +453,139 @@ public final class ValidationResult implements Serializable {
     public ValidationResult addAll(ValidationResult that) {
         for (Entry<ValidationLocation, ResultsPerLocation> resultsByLocation : that.results.entrySet()) {
             ResultsPerLocation thatResults = resultsByLocation.getValue();
-            if (thatResults.error.isEmpty() && thatResults.warning.isEmpty() && (thatResults.passed.isEmpty() || !this.storingPassingChecks)) {
+            if (thatResults.error.isEmpty() && thatResults.warning.isEmpty() && (!thatResults.hasPassed() || !this.storingPassingChecks)) {
                 continue;
             }
 
             ResultsPerLocation thisResults = results.computeIfAbsent(resultsByLocation.getKey(), (x) -> new ResultsPerLocation());
-            thisResults.error.addAll(thatResults.error);
-            thisResults.warning.addAll(thatResults.warning);
+            for (ValidationCheck check : thatResults.error) {
+                thisResults.addError(check);
+            }
+            for (ValidationCheck check : thatResults.warning) {
+                thisResults.addWarning(check);
+            }
             if (this.storingPassingChecks) {
-                thisResults.passed.addAll(thatResults.passed);
+                thisResults.addPassedFrom(thatResults, this.compactStorage);
             }
         }
         return this;
     }
 
     private static final class ResultsPerLocation implements Serializable {
-        private static final long serialVersionUID = 1L;
+        private static final long serialVersionUID = 2L;
 
-        final List<ValidationCheck> error = new ArrayList<>();
+        private static final int[] NO_PASSED_KEYS = {};
 
-        final List<ValidationCheck> warning = new ArrayList<>();
+        // Most locations only have passed checks, so the lists are allocated on first use.
+        List<ValidationCheck> error = Collections.emptyList();
 
-        // Average of 12-13 passed checks per location (min = 1, max = 18) as of 2020-07-08 on RIPE NCC trust anchor,
-        // we use a slightly higher initial capacity to avoid re-sizing.
-        final List<ValidationCheck> passed = new ArrayList<>(20);
+        List<ValidationCheck> warning = Collections.emptyList();
+
+        List<ValidationCheck> passed = Collections.emptyList();
+
+        // Interned keys of the passed checks in compact storage mode (see ValidationCheckKeys). The codes are only
+        // valid in this JVM, so they are serialized as key strings.
+        transient int[] passedKeys = NO_PASSED_KEYS;
+
+        transient int passedKeyCount;
+
+        void addError(ValidationCheck check) {
+            if (error.isEmpty()) {
+                error = new ArrayList<>();
+            }
+            error.add(check);
+        }
+
+        void addWarning(ValidationCheck check) {
+            if (warning.isEmpty()) {
+                warning = new ArrayList<>();
+            }
+            warning.add(check);
+        }
+
+        void addPassed(ValidationCheck check) {
+            if (passed.isEmpty()) {
+                // Average of 12-13 passed checks per location (min = 1, max = 18) as of 2020-07-08 on RIPE NCC trust anchor,
+                // we use a slightly higher initial capacity to avoid re-sizing.
+                passed = new ArrayList<>(20);
+            }
+            passed.add(check);
+        }
+
+        void addPassed(int keyCode) {
+            if (passedKeyCount == passedKeys.length) {
+                passedKeys = Arrays.copyOf(passedKeys, Math.max(20, passedKeyCount * 2));
+            }
+            passedKeys[passedKeyCount++] = keyCode;
+        }
+
+        void addPassedFrom(ResultsPerLocation that, boolean compact) {
+            for (ValidationCheck check : that.passed) {
+                if (compact) {
+                    addPassed(ValidationCheckKeys.codeOf(check.getKey()));
+                } else {
+                    addPassed(check);
+                }
+            }
+            for (int i = 0; i < that.passedKeyCount; ++i) {
+                if (compact) {
+                    addPassed(that.passedKeys[i]);
+                } else {
+                    addPassed(ValidationCheckKeys.passed(that.passedKeys[i]));
+                }
+            }
+        }
+
+        boolean hasPassed() {
+            return !passed.isEmpty() || passedKeyCount > 0;
+        }
+
+        void addPassedChecksTo(List<ValidationCheck> target) {
+            target.addAll(passed);
+            for (int i = 0; i < passedKeyCount; ++i) {
+                target.add(ValidationCheckKeys.passed(passedKeys[i]));
+            }
+        }
+
+        void compactPassed() {
+            for (ValidationCheck check : passed) {
+                addPassed(ValidationCheckKeys.codeOf(check.getKey()));
+            }
+            passed = Collections.emptyList();
+        }
+
+        void clearPassed() {
+            passed = Collections.emptyList();
+            passedKeys = NO_PASSED_KEYS;
+            passedKeyCount = 0;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt(passedKeyCount);
+            for (int i = 0; i < passedKeyCount; ++i) {
+                out.writeUTF(ValidationCheckKeys.keyOf(passedKeys[i]));
+            }
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            int count = in.readInt();
+            passedKeys = NO_PASSED_KEYS;
+            passedKeyCount = 0;
+            for (int i = 0; i < count; ++i) {
+                addPassed(ValidationCheckKeys.codeOf(in.readUTF()));
+            }
+        }
 
         @Override
         public String toString() {
+            List<ValidationCheck> allPassed = new ArrayList<>();
+            addPassedChecksTo(allPassed);
             return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
                     .append("error", error)
                     .append("warning", warning)
-                    .append("passed", passed)
+                    .append("passed", allPassed)
                     .toString();
         }
     }
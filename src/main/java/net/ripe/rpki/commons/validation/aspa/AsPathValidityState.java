@@ -0,0 +1,5 @@
+package net.ripe.rpki.commons.validation.aspa;
+
+public enum AsPathValidityState {
+    VALID, INVALID, UNKNOWN
+}
@@ -0,0 +1,299 @@
+package net.ripe.rpki.commons.validation.aspa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.rpki.commons.crypto.cms.aspa.AspaCms;
+import net.ripe.rpki.commons.crypto.cms.aspa.ProviderAS;
+import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies AS paths against validated ASPA objects, following the upstream and downstream verification procedures
+ * of https://datatracker.ietf.org/doc/html/draft-ietf-sidrops-aspa-verification-16.
+ * <p>
+ * The providers of every customer AS are indexed per address family in an open addressing hash table keyed by the
+ * customer ASN, with the provider ASNs in sorted <code>int</code> arrays. ASPA objects for the same customer are
+ * merged. A hop from a customer to a provider is checked with a hash lookup and a binary search.
+ * <p>
+ * AS paths are <code>int</code> arrays of unsigned 32 bit ASNs in AS_PATH order: the neighbour AS first and the
+ * origin AS last. Prepended ASNs are skipped while walking the path, so verifying a path does not allocate. Paths
+ * with AS_SET segments are always invalid and must not be passed to this class.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class AspaVerifier {
+
+    // Number of paths below which bulk verification does not split the work any further.
+    private static final int BULK_VERIFICATION_THRESHOLD = 4096;
+
+    private static final int PROVIDER = 0;
+    private static final int NOT_PROVIDER = 1;
+    private static final int NO_ATTESTATION = 2;
+
+    private final ProviderIndex ipv4Providers;
+    private final ProviderIndex ipv6Providers;
+
+    private AspaVerifier(ProviderIndex ipv4Providers, ProviderIndex ipv6Providers) {
+        this.ipv4Providers = ipv4Providers;
+        this.ipv6Providers = ipv6Providers;
+    }
+
+    public static AspaVerifier fromAspas(Iterable<? extends AspaCms> aspas) {
+        Map<Asn, List<ProviderAS>> providersByCustomer = new LinkedHashMap<>();
+        for (AspaCms aspa : aspas) {
+            providersByCustomer.computeIfAbsent(aspa.getCustomerAsn(), customer -> new ArrayList<>()).addAll(aspa.getProviderASSet());
+        }
+        return of(providersByCustomer);
+    }
+
+    /**
+     * @param providersByCustomer the provider ASes of every customer AS with an ASPA. Note that a customer AS
+     *                            without providers has only AS0 as provider.
+     */
+    public static AspaVerifier of(Map<Asn, ? extends Iterable<ProviderAS>> providersByCustomer) {
+        Map<Integer, TreeSet<Integer>> ipv4 = new HashMap<>();
+        Map<Integer, TreeSet<Integer>> ipv6 = new HashMap<>();
+        providersByCustomer.forEach((customer, providers) -> {
+            int customerAsn = (int) customer.longValue();
+            TreeSet<Integer> ipv4Set = ipv4.computeIfAbsent(customerAsn, asn -> new TreeSet<>());
+            TreeSet<Integer> ipv6Set = ipv6.computeIfAbsent(customerAsn, asn -> new TreeSet<>());
+            for (ProviderAS provider : providers) {
+                int providerAsn = (int) provider.getProviderAsn().longValue();
+                if (appliesTo(provider, AddressFamily.IPV4)) {
+                    ipv4Set.add(providerAsn);
+                }
+                if (appliesTo(provider, AddressFamily.IPV6)) {
+                    ipv6Set.add(providerAsn);
+                }
+            }
+        });
+        return new AspaVerifier(new ProviderIndex(ipv4), new ProviderIndex(ipv6));
+    }
+
+    private static boolean appliesTo(ProviderAS provider, AddressFamily addressFamily) {
+        return !provider.getAfiLimit().isPresent()
+                || provider.getAfiLimit().get().getAddressFamilyIdentifier() == addressFamily.getAddressFamilyIdentifier();
+    }
+
+    /**
+     * @return the number of customer ASes with an ASPA
+     */
+    public int size() {
+        return ipv4Providers.size();
+    }
+
+    /**
+     * Verifies a path received from a customer or lateral peer: every hop must go from a customer to one of its
+     * attested providers.
+     */
+    public AsPathValidityState verifyUpstream(int[] asPath, AddressFamily addressFamily) {
+        ProviderIndex index = index(addressFamily);
+        if (asPath.length == 0) {
+            return AsPathValidityState.INVALID;
+        }
+        boolean unknown = false;
+        // Walk from the origin, asPath[length - 1], towards the neighbour, asPath[0].
+        for (int i = asPath.length - 1; i > 0; --i) {
+            if (asPath[i] == asPath[i - 1]) {
+                continue;
+            }
+            int hop = index.hop(asPath[i], asPath[i - 1]);
+            if (hop == NOT_PROVIDER) {
+                return AsPathValidityState.INVALID;
+            } else if (hop == NO_ATTESTATION) {
+                unknown = true;
+            }
+        }
+        return unknown ? AsPathValidityState.UNKNOWN : AsPathValidityState.VALID;
+    }
+
+    /**
+     * Verifies a path received from a provider: the path must consist of an up ramp of customer to provider hops
+     * followed by a down ramp of provider to customer hops, with at most one lateral peering in between.
+     */
+    public AsPathValidityState verifyDownstream(int[] asPath, AddressFamily addressFamily) {
+        ProviderIndex index = index(addressFamily);
+        int n = countWithoutPrepends(asPath);
+        if (n == 0) {
+            return AsPathValidityState.INVALID;
+        }
+        if (n <= 2) {
+            return AsPathValidityState.VALID;
+        }
+        // In the terms of the draft AS(i), 1 <= i <= N, is the i-th distinct ASN from the origin, so hop k is from
+        // AS(k) to AS(k + 1). Walk the hops from the origin for the up ramp and the first hop that is not up.
+        int minUp = n + 1;
+        int upRamp = 1;
+        for (int i = asPath.length - 1, k = 0; i > 0; --i) {
+            if (asPath[i] == asPath[i - 1]) {
+                continue;
+            }
+            k++;
+            int hop = index.hop(asPath[i], asPath[i - 1]);
+            if (hop == NOT_PROVIDER) {
+                minUp = k + 1;
+                break;
+            } else if (hop == PROVIDER && upRamp == k) {
+                upRamp++;
+            }
+        }
+        // Walk the hops from the neighbour for the down ramp and the last hop that is not down.
+        int maxDown = 0;
+        int downRamp = n;
+        for (int i = 0, k = n; i < asPath.length - 1; ++i) {
+            if (asPath[i] == asPath[i + 1]) {
+                continue;
+            }
+            k--;
+            int hop = index.hop(asPath[i], asPath[i + 1]);
+            if (hop == NOT_PROVIDER) {
+                maxDown = k;
+                break;
+            } else if (hop == PROVIDER && downRamp == k + 1) {
+                downRamp--;
+            }
+        }
+        if (minUp <= maxDown) {
+            return AsPathValidityState.INVALID;
+        }
+        return downRamp - upRamp <= 1 ? AsPathValidityState.VALID : AsPathValidityState.UNKNOWN;
+    }
+
+    /**
+     * Verifies all paths with {@link #verifyUpstream(int[], AddressFamily)}, splitting the work over the threads
+     * of the pool.
+     *
+     * @return the validity states in the order of <code>asPaths</code>
+     */
+    public List<AsPathValidityState> verifyUpstream(List<int[]> asPaths, AddressFamily addressFamily, ForkJoinPool pool) {
+        AsPathValidityState[] result = new AsPathValidityState[asPaths.size()];
+        pool.invoke(new VerifyAction(this, asPaths, addressFamily, true, result, 0, result.length));
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Verifies all paths with {@link #verifyDownstream(int[], AddressFamily)}, splitting the work over the threads
+     * of the pool.
+     *
+     * @return the validity states in the order of <code>asPaths</code>
+     */
+    public List<AsPathValidityState> verifyDownstream(List<int[]> asPaths, AddressFamily addressFamily, ForkJoinPool pool) {
+        AsPathValidityState[] result = new AsPathValidityState[asPaths.size()];
+        pool.invoke(new VerifyAction(this, asPaths, addressFamily, false, result, 0, result.length));
+        return Arrays.asList(result);
+    }
+
+    private ProviderIndex index(AddressFamily addressFamily) {
+        switch (addressFamily.getAddressFamilyIdentifier()) {
+            case 1:
+                return ipv4Providers;
+            case 2:
+                return ipv6Providers;
+            default:
+                throw new IllegalArgumentException("unsupported address family " + addressFamily);
+        }
+    }
+
+    /**
+     * @return the number of ASNs in the path, not counting prepended ASNs
+     */
+    private static int countWithoutPrepends(int[] asPath) {
+        int count = asPath.length == 0 ? 0 : 1;
+        for (int i = 1; i < asPath.length; ++i) {
+            if (asPath[i] != asPath[i - 1]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class VerifyAction extends RecursiveAction {
+        private final AspaVerifier verifier;
+        private final List<int[]> asPaths;
+        private final AddressFamily addressFamily;
+        private final boolean upstream;
+        private final AsPathValidityState[] result;
+        private final int from;
+        private final int to;
+
+        private VerifyAction(AspaVerifier verifier, List<int[]> asPaths, AddressFamily addressFamily, boolean upstream, AsPathValidityState[] result, int from, int to) {
+            this.verifier = verifier;
+            this.asPaths = asPaths;
+            this.addressFamily = addressFamily;
+            this.upstream = upstream;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BULK_VERIFICATION_THRESHOLD) {
+                for (int i = from; i < to; ++i) {
+                    int[] asPath = asPaths.get(i);
+                    result[i] = upstream ? verifier.verifyUpstream(asPath, addressFamily) : verifier.verifyDownstream(asPath, addressFamily);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyAction(verifier, asPaths, addressFamily, upstream, result, from, middle),
+                        new VerifyAction(verifier, asPaths, addressFamily, upstream, result, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Open addressing hash table from customer ASN to the sorted array of its provider ASNs, with linear probing.
+     */
+    private static final class ProviderIndex {
+        private final int mask;
+        private final int[] customers;
+        private final int[][] providers;
+        private final int size;
+
+        private ProviderIndex(Map<Integer, TreeSet<Integer>> providersByCustomer) {
+            int capacity = Integer.highestOneBit(Math.max(4, 2 * providersByCustomer.size() - 1)) << 1;
+            mask = capacity - 1;
+            customers = new int[capacity];
+            providers = new int[capacity][];
+            size = providersByCustomer.size();
+            providersByCustomer.forEach((customer, providerSet) -> {
+                int slot = slot(customer);
+                while (providers[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                customers[slot] = customer;
+                // Sorted as signed ints, which is all the binary search needs.
+                providers[slot] = providerSet.stream().mapToInt(Integer::intValue).toArray();
+            });
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int slot(int asn) {
+            int hash = asn * 0x9e3779b9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        private int hop(int customer, int provider) {
+            int slot = slot(customer);
+            int[] candidates;
+            while ((candidates = providers[slot]) != null) {
+                if (customers[slot] == customer) {
+                    return Arrays.binarySearch(candidates, provider) >= 0 ? PROVIDER : NOT_PROVIDER;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NO_ATTESTATION;
+        }
+    }
+}
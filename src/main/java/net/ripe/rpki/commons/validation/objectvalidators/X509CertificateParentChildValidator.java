@@ -43,6 +43,9 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
         result.setLocation(new ValidationLocation(location));
 
         verifySignature();
+        if (result.isVerdictReached()) {
+            return;
+        }
         verifyValidity();
         verifyCrl();
         verifyIssuer();
@@ -60,6 +63,9 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
 
     private void verifySignature() {
         result.rejectIfFalse(parent.isCa(), ISSUER_IS_CA);
+        if (result.isVerdictReached()) {
+            return;
+        }
 
         boolean errorOccurred = false;
         try {
@@ -76,6 +82,9 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
             result.rejectIfFalse(child.isRoot(), CRL_REQUIRED);
             return;
         }
+        if (result.isVerdictReached()) {
+            return;
+        }
 
         boolean errorOccurred = false;
         try {
@@ -92,8 +101,8 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
         final DateTime now = UTC.dateTime();
         final DateTime notValidBefore = child.getValidityPeriod().getNotValidBefore();
         final DateTime notValidAfter = child.getValidityPeriod().getNotValidAfter();
-        result.rejectIfTrue(now.isBefore(notValidBefore), NOT_VALID_BEFORE, notValidBefore.toString());
-        result.rejectIfTrue(now.isAfter(notValidAfter), NOT_VALID_AFTER, notValidAfter.toString());
+        result.rejectIfTrue(now.isBefore(notValidBefore), NOT_VALID_BEFORE, notValidBefore);
+        result.rejectIfTrue(now.isAfter(notValidAfter), NOT_VALID_AFTER, notValidAfter);
     }
 
     private void verifyIssuer() {
@@ -0,0 +1,17 @@
+package net.ripe.rpki.commons.validation.repository;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * The objects of the RPKI repositories, for example a local copy fetched with rsync or RRDP, by their location.
+ * It is called concurrently by the {@link TopDownValidator}.
+ */
+@FunctionalInterface
+public interface RepositoryObjectStore {
+
+    /**
+     * @return the DER encoded object at the location, or null when the store has no object at the location
+     */
+    byte[] get(URI location) throws IOException;
+}
@@ -0,0 +1,327 @@
+package net.ripe.rpki.commons.validation.repository;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.UnknownCertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestDiff;
+import net.ripe.rpki.commons.crypto.crl.CrlLocator;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509RouterCertificate;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationOptions;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+import static net.ripe.rpki.commons.validation.ValidationString.*;
+
+/**
+ * Validates the objects issued under a trust anchor, walking the certificate tree top-down. Every CA is a unit of
+ * work: its manifest, the CRL on the manifest and the other objects on the manifest are read from the
+ * {@link RepositoryObjectStore}, checked against the manifest hashes and validated with the validators of the
+ * objects themselves. The CAs found on the manifest are then validated as units of work of their own, in parallel
+ * on a fork/join pool.
+ * <p>
+ * Every object is validated with its own {@link ValidationResult}, with the settings of the result passed in, and
+ * the results are combined in a fixed order: the objects of a CA in manifest file name order, followed by the
+ * objects of its child CAs in the same order. The outcome is the same for every pool size and scheduling.
+ * <p>
+ * Validation can be incremental: given the valid objects of a previous run, the files on a manifest that have the same
+ * hash as on the manifest of the previous run (see {@link ManifestCms#diff(ManifestCms)}) are not read, hashed and
+ * parsed again, but the previously parsed object is validated. This assumes that the store content of these files did
+ * not change either. The failures are the same as for a full run, but the checks of parsing the reused objects are not
+ * recorded again.
+ */
+public final class TopDownValidator {
+
+    private final RepositoryObjectStore store;
+    private final ValidationOptions options;
+    private final ForkJoinPool pool;
+
+    public TopDownValidator(RepositoryObjectStore store, ValidationOptions options, ForkJoinPool pool) {
+        this.store = Validate.notNull(store, "store is null");
+        this.options = Validate.notNull(options, "options is null");
+        this.pool = Validate.notNull(pool, "pool is null");
+    }
+
+    /**
+     * Validates the objects issued, directly or through other CAs, by the trust anchor. The trust anchor certificate
+     * itself must already be validated, for example against its trust anchor locator.
+     *
+     * @return the valid objects by location, in validation order. Objects of CAs without a valid manifest and CRL
+     * are not validated.
+     */
+    public Map<URI, CertificateRepositoryObject> validate(URI trustAnchorLocation, X509ResourceCertificate trustAnchor, ValidationResult validationResult) {
+        return validate(trustAnchorLocation, trustAnchor, Collections.emptyMap(), validationResult);
+    }
+
+    /**
+     * Validates the objects issued by the trust anchor, reusing the objects of a previous run for the files that did
+     * not change since.
+     *
+     * @param previousObjects the objects returned by the previous run for the same trust anchor
+     * @return the valid objects by location, in validation order
+     */
+    public Map<URI, CertificateRepositoryObject> validate(URI trustAnchorLocation, X509ResourceCertificate trustAnchor, Map<URI, ? extends CertificateRepositoryObject> previousObjects, ValidationResult validationResult) {
+        Validate.notNull(previousObjects, "previousObjects is null");
+        ValidationLocation location = validationResult.getCurrentLocation();
+        CertificateRepositoryObjectValidationContext context = new CertificateRepositoryObjectValidationContext(trustAnchorLocation, trustAnchor);
+        CaResult result = pool.invoke(new CaTask(context, Collections.emptyList(), previousObjects, validationResult.newWithSameSettings(location)));
+
+        validationResult.addAll(result.validationResult);
+        validationResult.setLocation(location);
+        return result.objects;
+    }
+
+    private static final class CaResult {
+        private final ValidationResult validationResult;
+        private final Map<URI, CertificateRepositoryObject> objects = new LinkedHashMap<>();
+
+        private CaResult(ValidationResult validationResult) {
+            this.validationResult = validationResult;
+        }
+
+        private void add(CaResult that) {
+            validationResult.addAll(that.validationResult);
+            objects.putAll(that.objects);
+        }
+    }
+
+    private final class CaTask extends RecursiveTask<CaResult> {
+        private final CertificateRepositoryObjectValidationContext context;
+        // Manifest locations of the CAs above this one, to stop at certificates that lead back to one of them.
+        private final List<URI> ancestors;
+        private final Map<URI, ? extends CertificateRepositoryObject> previousObjects;
+        private final ValidationResult settings;
+
+        private CaTask(CertificateRepositoryObjectValidationContext context, List<URI> ancestors, Map<URI, ? extends CertificateRepositoryObject> previousObjects, ValidationResult settings) {
+            this.context = context;
+            this.ancestors = ancestors;
+            this.previousObjects = previousObjects;
+            this.settings = settings;
+        }
+
+        @Override
+        protected CaResult compute() {
+            ValidationLocation location = new ValidationLocation(context.getLocation());
+            CaResult result = new CaResult(settings.newWithSameSettings(location));
+
+            // Only a CA that is validated completely contributes its objects and child CAs.
+            Map<URI, CertificateRepositoryObject> objects = new LinkedHashMap<>();
+            List<CaTask> children;
+            try {
+                children = validateObjects(result, objects);
+            } catch (RuntimeException e) {
+                result.validationResult.rejectForLocation(location, VALIDATOR_OBJECT_PROCESSING_EXCEPTION, context.getLocation().toString());
+                objects.clear();
+                children = Collections.emptyList();
+            }
+            if (children == null) {
+                result.validationResult.rejectForLocation(location, VALIDATOR_CA_SHOULD_HAVE_MANIFEST);
+                return result;
+            }
+            result.objects.putAll(objects);
+
+            invokeAll(children);
+            for (CaTask child : children) {
+                result.add(child.join());
+            }
+            return result;
+        }
+
+        /**
+         * Adds the valid objects of the CA to <code>objects</code>.
+         *
+         * @return the tasks for the child CAs, or null when the CA has no valid manifest and CRL
+         */
+        private List<CaTask> validateObjects(CaResult result, Map<URI, CertificateRepositoryObject> objects) {
+            URI manifestUri = context.getManifestURI();
+            if (manifestUri == null) {
+                return null;
+            }
+            URI repositoryUri = context.getRepositoryURI();
+
+            ValidationResult manifestResult = newResult(manifestUri);
+            ManifestCms manifest = readManifest(manifestUri, manifestResult);
+            if (manifest == null) {
+                result.validationResult.addAll(manifestResult);
+                return null;
+            }
+
+            Set<String> unchanged = unchangedFileNames(manifestUri, manifest);
+            List<String> crlNames = manifest.getFileNames().stream().filter(name -> name.endsWith(".crl")).collect(Collectors.toList());
+            if (!manifestResult.rejectIfFalse(crlNames.size() == 1, VALIDATOR_MANIFEST_CONTAINS_ONE_CRL_ENTRY, String.valueOf(crlNames.size()))) {
+                result.validationResult.addAll(manifestResult);
+                return null;
+            }
+            String crlName = crlNames.get(0);
+            URI crlUri = repositoryUri.resolve(crlName);
+            manifestResult.rejectIfFalse(crlUri.equals(manifest.getCrlUri()), VALIDATOR_MANIFEST_CRL_URI_MISMATCH, crlUri.toString(), String.valueOf(manifest.getCrlUri()));
+
+            ValidationResult crlResult = newResult(crlUri);
+            X509Crl crl = readCrl(crlUri, crlName, manifest, unchanged, crlResult);
+            if (crl != null) {
+                manifest.validate(manifestUri.toString(), context, crl, crlUri, options, manifestResult);
+            }
+            result.validationResult.addAll(manifestResult);
+            result.validationResult.addAll(crlResult);
+            if (manifestResult.hasFailures() || crlResult.hasFailures()) {
+                return null;
+            }
+            objects.put(manifestUri, manifest);
+            objects.put(crlUri, crl);
+
+            List<CaTask> children = new ArrayList<>();
+            for (String name : manifest.getFileNames()) {
+                if (name.equals(crlName)) {
+                    continue;
+                }
+                URI location = repositoryUri.resolve(name);
+                ValidationResult objectResult = newResult(location);
+                CertificateRepositoryObject object = readObject(location, name, manifest, unchanged, objectResult);
+                boolean validated = object != null && validateObject(location, object, crl, crlUri, objectResult);
+                result.validationResult.addAll(objectResult);
+                if (!validated || objectResult.hasFailures()) {
+                    continue;
+                }
+                if (object instanceof X509ResourceCertificate && ((X509ResourceCertificate) object).isCa()) {
+                    CaTask child = createChildTask(location, (X509ResourceCertificate) object, manifestUri, result.validationResult);
+                    if (child == null) {
+                        continue;
+                    }
+                    children.add(child);
+                }
+                objects.put(location, object);
+            }
+            return children;
+        }
+
+        private ManifestCms readManifest(URI location, ValidationResult result) {
+            byte[] encoded = read(location, result);
+            if (encoded == null) {
+                return null;
+            }
+            CertificateRepositoryObject previous = previousObjects.get(location);
+            if (previous instanceof ManifestCms && Arrays.equals(((ManifestCms) previous).getEncoded(), encoded)) {
+                return (ManifestCms) previous;
+            }
+            CertificateRepositoryObject object = parse(location, encoded, result);
+            if (object == null || !result.rejectIfFalse(object instanceof ManifestCms, VALIDATOR_FETCHED_OBJECT_IS_MANIFEST)) {
+                return null;
+            }
+            return (ManifestCms) object;
+        }
+
+        /**
+         * @return the files on the manifest with the same hash as on the manifest of the previous run
+         */
+        private Set<String> unchangedFileNames(URI manifestUri, ManifestCms manifest) {
+            CertificateRepositoryObject previous = previousObjects.get(manifestUri);
+            if (!(previous instanceof ManifestCms)) {
+                return Collections.emptySet();
+            }
+            ManifestDiff diff = manifest.diff((ManifestCms) previous);
+            Set<String> result = new HashSet<>(manifest.getFileNames());
+            result.removeAll(diff.getAdded());
+            result.removeAll(diff.getChanged());
+            return result;
+        }
+
+        private X509Crl readCrl(URI location, String name, ManifestCms manifest, Set<String> unchanged, ValidationResult result) {
+            CertificateRepositoryObject object = readObject(location, name, manifest, unchanged, result);
+            if (object == null || !result.rejectIfFalse(object instanceof X509Crl, VALIDATOR_FETCHED_OBJECT_IS_CRL)) {
+                return null;
+            }
+            X509Crl crl = (X509Crl) object;
+            crl.validate(location.toString(), context, (CrlLocator) null, options, result);
+            return result.hasFailures() ? null : crl;
+        }
+
+        private CertificateRepositoryObject readObject(URI location, String name, ManifestCms manifest, Set<String> unchanged, ValidationResult result) {
+            CertificateRepositoryObject previous = previousObjects.get(location);
+            if (previous != null && unchanged.contains(name)) {
+                return previous;
+            }
+            byte[] encoded = read(location, result);
+            if (encoded == null || !result.rejectIfFalse(manifest.verifyFileContents(name, encoded), VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES)) {
+                return null;
+            }
+            return parse(location, encoded, result);
+        }
+
+        private byte[] read(URI location, ValidationResult result) {
+            try {
+                byte[] encoded = store.get(location);
+                result.rejectIfNull(encoded, VALIDATOR_READ_FILE);
+                return encoded;
+            } catch (IOException e) {
+                result.error(VALIDATOR_READ_FILE);
+                return null;
+            }
+        }
+
+        private CertificateRepositoryObject parse(URI location, byte[] encoded, ValidationResult result) {
+            try {
+                CertificateRepositoryObject object = CertificateRepositoryObjectFactory.createCertificateRepositoryObject(encoded, result);
+                return result.hasFailures() ? null : object;
+            } catch (RuntimeException e) {
+                result.error(VALIDATOR_OBJECT_PROCESSING_EXCEPTION, location.toString());
+                return null;
+            }
+        }
+
+        /**
+         * @return false when the object type is not validated
+         */
+        private boolean validateObject(URI location, CertificateRepositoryObject object, X509Crl crl, URI crlUri, ValidationResult result) {
+            // Router certificates are validated against a router certificate parent, so like objects of unknown
+            // types they are reported but not validated.
+            if (object instanceof UnknownCertificateRepositoryObject || object instanceof X509RouterCertificate) {
+                result.warn(VALIDATOR_REPO_EXECUTION, "This object type is not supported for " + location);
+                return false;
+            }
+            try {
+                object.validate(location.toString(), context, crl, crlUri, options, result);
+            } catch (RuntimeException e) {
+                result.setLocation(new ValidationLocation(location));
+                result.error(VALIDATOR_OBJECT_PROCESSING_EXCEPTION, location.toString());
+            }
+            return true;
+        }
+
+        /**
+         * @return the task for the child CA, or null when the certificate leads back to this CA or one of its ancestors
+         */
+        private CaTask createChildTask(URI location, X509ResourceCertificate certificate, URI manifestUri, ValidationResult result) {
+            URI childManifestUri = certificate.getManifestUri();
+            if (manifestUri.equals(childManifestUri) || ancestors.contains(childManifestUri)) {
+                result.rejectForLocation(new ValidationLocation(location), VALIDATOR_CIRCULAR_REFERENCE, location.toString(), String.valueOf(childManifestUri));
+                return null;
+            }
+            List<URI> childAncestors = new ArrayList<>(ancestors.size() + 1);
+            childAncestors.addAll(ancestors);
+            childAncestors.add(manifestUri);
+            return new CaTask(context.createChildContext(location, certificate), childAncestors, previousObjects, settings);
+        }
+
+        private ValidationResult newResult(URI location) {
+            return settings.newWithSameSettings(new ValidationLocation(location));
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.rpki.commons.crypto.cms.roa.Roa;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static net.ripe.rpki.commons.validation.roa.PrefixKeys.*;
+
+/**
+ * Immutable, memory compact set of allowed routes (validated ROA payloads), stored as parallel primitive arrays
+ * instead of {@link AllowedRoute} objects: the address of each prefix as two left aligned 64 bit words (see
+ * {@link #getAddressHigh(int)}), the prefix length, the maximum length and the ASN. A route takes 22 bytes.
+ * <p>
+ * The routes are sorted by address family (IPv4 first), address, prefix length, maximum length and ASN, and
+ * duplicates are removed. The set can be indexed for validation with {@link AllowedRouteTrie#of(AllowedRouteSet)}
+ * and written to and read from a flat binary file with {@link #writeTo(OutputStream)} and
+ * {@link #readFrom(InputStream)}.
+ */
+public final class AllowedRouteSet implements Iterable<AllowedRoute> {
+
+    private static final int FILE_MAGIC = 0x52504b56; // "RPKV"
+    private static final int FILE_VERSION = 1;
+
+    private final int ipv4Count;
+    private final long[] addressHigh;
+    private final long[] addressLow;
+    private final byte[] prefixLength;
+    private final byte[] maximumLength;
+    private final int[] asn;
+
+    private AllowedRouteSet(int ipv4Count, long[] addressHigh, long[] addressLow, byte[] prefixLength, byte[] maximumLength, int[] asn) {
+        this.ipv4Count = ipv4Count;
+        this.addressHigh = addressHigh;
+        this.addressLow = addressLow;
+        this.prefixLength = prefixLength;
+        this.maximumLength = maximumLength;
+        this.asn = asn;
+    }
+
+    public static AllowedRouteSet fromRoas(Iterable<? extends Roa> roas) {
+        Builder builder = new Builder();
+        long[] key = new long[2];
+        for (Roa roa : roas) {
+            long roaAsn = roa.getAsn().longValue();
+            for (RoaPrefix roaPrefix : roa.getPrefixes()) {
+                int length = prefixKey(roaPrefix.getPrefix(), key);
+                builder.add(PrefixKeys.isIpv4(roaPrefix.getPrefix()), key[0], key[1], length, roaPrefix.getEffectiveMaximumLength(), roaAsn);
+            }
+        }
+        return builder.build();
+    }
+
+    public static AllowedRouteSet of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        Builder builder = new Builder();
+        long[] key = new long[2];
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            int length = prefixKey(allowedRoute.getPrefix(), key);
+            builder.add(PrefixKeys.isIpv4(allowedRoute.getPrefix()), key[0], key[1], length, allowedRoute.getMaximumLength(), allowedRoute.getAsn().longValue());
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return asn.length;
+    }
+
+    /**
+     * @return the number of IPv4 routes, which come before the IPv6 routes
+     */
+    public int getIpv4Count() {
+        return ipv4Count;
+    }
+
+    public boolean isIpv4(int index) {
+        return index < ipv4Count;
+    }
+
+    /**
+     * @return the most significant 64 bits of the prefix address. IPv4 addresses are stored in the top 32 bits.
+     */
+    public long getAddressHigh(int index) {
+        return addressHigh[index];
+    }
+
+    /**
+     * @return the least significant 64 bits of the prefix address, always 0 for IPv4.
+     */
+    public long getAddressLow(int index) {
+        return addressLow[index];
+    }
+
+    public int getPrefixLength(int index) {
+        return prefixLength[index] & 0xff;
+    }
+
+    public int getMaximumLength(int index) {
+        return maximumLength[index] & 0xff;
+    }
+
+    public long getAsn(int index) {
+        return Integer.toUnsignedLong(asn[index]);
+    }
+
+    public AllowedRoute get(int index) {
+        return new AllowedRoute(new Asn(getAsn(index)), toPrefix(isIpv4(index), addressHigh[index], addressLow[index], getPrefixLength(index)), getMaximumLength(index));
+    }
+
+    @Override
+    public Iterator<AllowedRoute> iterator() {
+        return new Iterator<AllowedRoute>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public AllowedRoute next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Reduces the set to fewer routes that authorise the same announcements, per ASN:
+     * <ul>
+     *     <li>a route is removed when a less specific route for the same ASN has an equal or higher maximum
+     *     length;</li>
+     *     <li>two sibling routes with the same maximum length are merged into their parent route for the same ASN
+     *     when that is present, the parent then gets the maximum of both maximum lengths.</li>
+     * </ul>
+     * Every announced route has the same RFC 6811 validation state (valid, invalid or not found) against the
+     * result as against this set. Routes covered by allowed routes of different ASNs can be reported as
+     * {@link RouteValidityState#INVALID_ASN} instead of {@link RouteValidityState#INVALID_LENGTH} or the other way
+     * around, as {@link RouteOriginValidationPolicy} reports the reason of the most specific covering route.
+     */
+    public AllowedRouteSet minimize() {
+        Integer[] order = new Integer[size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        // Stable sort, so the routes of an ASN remain sorted by prefix.
+        Arrays.sort(order, (a, b) -> Integer.compareUnsigned(asn[a], asn[b]));
+
+        Builder builder = new Builder();
+        for (int from = 0, to; from < order.length; from = to) {
+            to = from + 1;
+            while (to < order.length && asn[order[to]] == asn[order[from]]) {
+                to++;
+            }
+            minimize(order, from, to, builder);
+        }
+        return builder.build();
+    }
+
+    private void minimize(Integer[] order, int from, int to, Builder builder) {
+        Map<Prefix, Integer> maximumLengths = new HashMap<>();
+        for (int i = from; i < to; ++i) {
+            int index = order[i];
+            maximumLengths.merge(new Prefix(isIpv4(index), addressHigh[index], addressLow[index], getPrefixLength(index)), getMaximumLength(index), Math::max);
+        }
+
+        // Merge siblings bottom up, so merged parents can be merged again.
+        List<Prefix> prefixes = new ArrayList<>(maximumLengths.keySet());
+        prefixes.sort(Comparator.comparingInt((Prefix prefix) -> prefix.length).reversed());
+        for (Prefix prefix : prefixes) {
+            Integer maximumLength = maximumLengths.get(prefix);
+            if (maximumLength == null || prefix.length == 0) {
+                continue;
+            }
+            Prefix sibling = prefix.sibling();
+            Prefix parent = prefix.parent();
+            if (maximumLength.equals(maximumLengths.get(sibling)) && maximumLengths.containsKey(parent)) {
+                maximumLengths.remove(prefix);
+                maximumLengths.remove(sibling);
+                maximumLengths.merge(parent, maximumLength, Math::max);
+            }
+        }
+
+        // Remove routes covered by a less specific route, walking the prefixes in order with a stack of the
+        // enclosing prefixes and the highest maximum length among them.
+        prefixes = new ArrayList<>(maximumLengths.keySet());
+        prefixes.sort(Prefix::compareTo);
+        Deque<Prefix> enclosing = new ArrayDeque<>();
+        Deque<Integer> enclosingMaximumLength = new ArrayDeque<>();
+        long routeAsn = getAsn(order[from]);
+        for (Prefix prefix : prefixes) {
+            while (!enclosing.isEmpty() && !enclosing.peek().contains(prefix)) {
+                enclosing.pop();
+                enclosingMaximumLength.pop();
+            }
+            int maximumLength = maximumLengths.get(prefix);
+            int covered = enclosing.isEmpty() ? -1 : enclosingMaximumLength.peek();
+            if (maximumLength > covered) {
+                builder.add(prefix.ipv4, prefix.high, prefix.low, prefix.length, maximumLength, routeAsn);
+            }
+            enclosing.push(prefix);
+            enclosingMaximumLength.push(Math.max(maximumLength, covered));
+        }
+    }
+
+    /**
+     * Writes the set as a header (magic number, version, number of routes, number of IPv4 routes) followed by
+     * the columns, all in big endian byte order. The stream is not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FILE_MAGIC);
+        data.writeInt(FILE_VERSION);
+        data.writeInt(size());
+        data.writeInt(ipv4Count);
+        for (long value : addressHigh) {
+            data.writeLong(value);
+        }
+        for (long value : addressLow) {
+            data.writeLong(value);
+        }
+        data.write(prefixLength);
+        data.write(maximumLength);
+        for (int value : asn) {
+            data.writeInt(value);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo(OutputStream)}.
+     *
+     * @throws IOException when reading fails or the data is not a valid allowed route set
+     */
+    public static AllowedRouteSet readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != FILE_MAGIC) {
+            throw new IOException("not an allowed route set");
+        }
+        int version = data.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("unsupported allowed route set version " + version);
+        }
+        int size = data.readInt();
+        int ipv4Count = data.readInt();
+        if (size < 0 || ipv4Count < 0 || ipv4Count > size) {
+            throw new IOException("invalid allowed route set size");
+        }
+        long[] addressHigh = new long[size];
+        long[] addressLow = new long[size];
+        byte[] prefixLength = new byte[size];
+        byte[] maximumLength = new byte[size];
+        int[] asn = new int[size];
+        for (int i = 0; i < size; ++i) {
+            addressHigh[i] = data.readLong();
+        }
+        for (int i = 0; i < size; ++i) {
+            addressLow[i] = data.readLong();
+        }
+        data.readFully(prefixLength);
+        data.readFully(maximumLength);
+        for (int i = 0; i < size; ++i) {
+            asn[i] = data.readInt();
+        }
+        for (int i = 0; i < size; ++i) {
+            int bitSize = i < ipv4Count ? 32 : 128;
+            int length = prefixLength[i] & 0xff;
+            int maximum = maximumLength[i] & 0xff;
+            if (length > bitSize || maximum < length || maximum > bitSize) {
+                throw new IOException("invalid prefix length in allowed route set");
+            }
+        }
+        return new AllowedRouteSet(ipv4Count, addressHigh, addressLow, prefixLength, maximumLength, asn);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        AllowedRouteSet that = (AllowedRouteSet) obj;
+        return ipv4Count == that.ipv4Count
+                && Arrays.equals(addressHigh, that.addressHigh)
+                && Arrays.equals(addressLow, that.addressLow)
+                && Arrays.equals(prefixLength, that.prefixLength)
+                && Arrays.equals(maximumLength, that.maximumLength)
+                && Arrays.equals(asn, that.asn);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = ipv4Count;
+        result = 31 * result + Arrays.hashCode(addressHigh);
+        result = 31 * result + Arrays.hashCode(addressLow);
+        result = 31 * result + Arrays.hashCode(prefixLength);
+        result = 31 * result + Arrays.hashCode(maximumLength);
+        result = 31 * result + Arrays.hashCode(asn);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "AllowedRouteSet [size=" + size() + ", ipv4Count=" + ipv4Count + "]";
+    }
+
+    /**
+     * Prefix used as hash key when minimizing.
+     */
+    private static final class Prefix implements Comparable<Prefix> {
+        private final boolean ipv4;
+        private final long high;
+        private final long low;
+        private final int length;
+
+        private Prefix(boolean ipv4, long high, long low, int length) {
+            this.ipv4 = ipv4;
+            this.high = high & mask(Math.min(length, 64));
+            this.low = length <= 64 ? 0 : low & mask(length - 64);
+            this.length = length;
+        }
+
+        private Prefix parent() {
+            return new Prefix(ipv4, high, low, length - 1);
+        }
+
+        private Prefix sibling() {
+            int position = length - 1;
+            return position < 64
+                    ? new Prefix(ipv4, high ^ (1L << (63 - position)), low, length)
+                    : new Prefix(ipv4, high, low ^ (1L << (127 - position)), length);
+        }
+
+        private boolean contains(Prefix that) {
+            return ipv4 == that.ipv4 && length <= that.length && commonPrefixLength(high, low, that.high, that.low) >= length;
+        }
+
+        @Override
+        public int compareTo(Prefix that) {
+            int rc = Boolean.compare(that.ipv4, ipv4);
+            if (rc == 0) {
+                rc = Long.compareUnsigned(high, that.high);
+            }
+            if (rc == 0) {
+                rc = Long.compareUnsigned(low, that.low);
+            }
+            if (rc == 0) {
+                rc = Integer.compare(length, that.length);
+            }
+            return rc;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Prefix)) {
+                return false;
+            }
+            Prefix that = (Prefix) obj;
+            return ipv4 == that.ipv4 && high == that.high && low == that.low && length == that.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high) * 31 + Long.hashCode(low) * 17 + length * (ipv4 ? 1 : -1);
+        }
+    }
+
+    /**
+     * Collects the routes in unsorted columns.
+     */
+    private static final class Builder {
+        private int size;
+        private boolean[] ipv4 = new boolean[16];
+        private long[] addressHigh = new long[16];
+        private long[] addressLow = new long[16];
+        private byte[] prefixLength = new byte[16];
+        private byte[] maximumLength = new byte[16];
+        private int[] asn = new int[16];
+
+        void add(boolean isIpv4, long high, long low, int length, int maximum, long routeAsn) {
+            if (size == asn.length) {
+                int capacity = 2 * size;
+                ipv4 = Arrays.copyOf(ipv4, capacity);
+                addressHigh = Arrays.copyOf(addressHigh, capacity);
+                addressLow = Arrays.copyOf(addressLow, capacity);
+                prefixLength = Arrays.copyOf(prefixLength, capacity);
+                maximumLength = Arrays.copyOf(maximumLength, capacity);
+                asn = Arrays.copyOf(asn, capacity);
+            }
+            ipv4[size] = isIpv4;
+            addressHigh[size] = high;
+            addressLow[size] = low;
+            prefixLength[size] = (byte) length;
+            maximumLength[size] = (byte) maximum;
+            asn[size] = (int) routeAsn;
+            size++;
+        }
+
+        AllowedRouteSet build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; ++i) {
+                order[i] = i;
+            }
+            Arrays.sort(order, this::compare);
+
+            int count = 0;
+            int ipv4Count = 0;
+            long[] sortedHigh = new long[size];
+            long[] sortedLow = new long[size];
+            byte[] sortedPrefixLength = new byte[size];
+            byte[] sortedMaximumLength = new byte[size];
+            int[] sortedAsn = new int[size];
+            for (int i = 0; i < size; ++i) {
+                int index = order[i];
+                if (i > 0 && compare(order[i - 1], index) == 0) {
+                    continue;
+                }
+                if (ipv4[index]) {
+                    ipv4Count++;
+                }
+                sortedHigh[count] = addressHigh[index];
+                sortedLow[count] = addressLow[index];
+                sortedPrefixLength[count] = prefixLength[index];
+                sortedMaximumLength[count] = maximumLength[index];
+                sortedAsn[count] = asn[index];
+                count++;
+            }
+            return new AllowedRouteSet(ipv4Count,
+                    Arrays.copyOf(sortedHigh, count),
+                    Arrays.copyOf(sortedLow, count),
+                    Arrays.copyOf(sortedPrefixLength, count),
+                    Arrays.copyOf(sortedMaximumLength, count),
+                    Arrays.copyOf(sortedAsn, count));
+        }
+
+        private int compare(int a, int b) {
+            int rc = Boolean.compare(ipv4[b], ipv4[a]);
+            if (rc == 0) {
+                rc = Long.compareUnsigned(addressHigh[a], addressHigh[b]);
+            }
+            if (rc == 0) {
+                rc = Long.compareUnsigned(addressLow[a], addressLow[b]);
+            }
+            if (rc == 0) {
+                rc = Integer.compare(prefixLength[a] & 0xff, prefixLength[b] & 0xff);
+            }
+            if (rc == 0) {
+                rc = Integer.compare(maximumLength[a] & 0xff, maximumLength[b] & 0xff);
+            }
+            if (rc == 0) {
+                rc = Integer.compareUnsigned(asn[a], asn[b]);
+            }
+            return rc;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.Ipv4Address;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteTrie.MAXIMUM_LENGTH_BITS;
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteTrie.NONE;
+import static net.ripe.rpki.commons.validation.roa.PrefixKeys.*;
+
+/**
+ * Versioned binary snapshot of a set of allowed routes (validated ROA payloads) that is validated against while
+ * memory mapped, so a new process can start route origin validation without parsing ROAs or building an index.
+ * <p>
+ * The file contains, in big endian byte order:
+ * <ol>
+ *     <li>a 32 byte header: magic number, version, number of routes, number of IPv4 routes, number of trie nodes,
+ *     IPv4 root node, IPv6 root node and a reserved word;</li>
+ *     <li>the routes as 24 byte records (address high and low word, ASN, prefix length, maximum length and two
+ *     padding bytes), sorted like an {@link AllowedRouteSet};</li>
+ *     <li>the nodes of an {@link AllowedRouteTrie} over the routes as 32 byte records (prefix high and low word,
+ *     child nodes, index of the first route of the node, prefix length and three padding bytes).</li>
+ * </ol>
+ * Validation walks the trie nodes in the mapped buffer and gives the same results as {@link AllowedRouteTrie}.
+ * Only absolute reads are used, so instances are safe to share between threads. The mapping is released when the
+ * instance is garbage collected.
+ */
+public final class AllowedRouteSnapshot implements Iterable<AllowedRoute>, PrefixKeys.PrimitiveRouteValidator {
+
+    private static final int FILE_MAGIC = 0x52504b53; // "RPKS"
+    private static final int FILE_VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 24;
+    private static final int NODE_SIZE = 32;
+
+    private static final int RECORD_ASN = 16;
+    private static final int RECORD_PREFIX_LENGTH = 20;
+    private static final int RECORD_MAXIMUM_LENGTH = 21;
+    private static final int NODE_CHILDREN = 16;
+    private static final int NODE_RECORD_START = 24;
+    private static final int NODE_PREFIX_LENGTH = 28;
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int ipv4Count;
+    private final int nodeCount;
+    private final int ipv4Root;
+    private final int ipv6Root;
+    private final int nodeOffset;
+
+    private AllowedRouteSnapshot(ByteBuffer buffer, int recordCount, int ipv4Count, int nodeCount, int ipv4Root, int ipv6Root) {
+        this.buffer = buffer;
+        this.recordCount = recordCount;
+        this.ipv4Count = ipv4Count;
+        this.nodeCount = nodeCount;
+        this.ipv4Root = ipv4Root;
+        this.ipv6Root = ipv6Root;
+        this.nodeOffset = HEADER_SIZE + recordCount * RECORD_SIZE;
+    }
+
+    /**
+     * Writes a snapshot of the allowed routes. The snapshot is written to a temporary file that then replaces
+     * <code>file</code>, so processes that have mapped the previous snapshot keep a consistent view of it.
+     */
+    public static void write(AllowedRouteSet allowedRoutes, Path file) throws IOException {
+        AllowedRouteTrie trie = AllowedRouteTrie.of(allowedRoutes);
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+                writeTo(allowedRoutes, trie, new DataOutputStream(new BufferedOutputStream(out)));
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static void writeTo(AllowedRouteSet allowedRoutes, AllowedRouteTrie trie, DataOutputStream data) throws IOException {
+        int nodeCount = trie.keyLength.length;
+        data.writeInt(FILE_MAGIC);
+        data.writeInt(FILE_VERSION);
+        data.writeInt(allowedRoutes.size());
+        data.writeInt(allowedRoutes.getIpv4Count());
+        data.writeInt(nodeCount);
+        data.writeInt(trie.ipv4Root);
+        data.writeInt(trie.ipv6Root);
+        data.writeInt(0);
+        for (int i = 0; i < allowedRoutes.size(); ++i) {
+            // The nodes refer to the routes by index, which requires the trie values to be in the same order.
+            if (trie.values[i] != (allowedRoutes.getAsn(i) << MAXIMUM_LENGTH_BITS | allowedRoutes.getMaximumLength(i))) {
+                throw new IllegalStateException("trie values are not in allowed route set order");
+            }
+            data.writeLong(allowedRoutes.getAddressHigh(i));
+            data.writeLong(allowedRoutes.getAddressLow(i));
+            data.writeInt((int) allowedRoutes.getAsn(i));
+            data.writeByte(allowedRoutes.getPrefixLength(i));
+            data.writeByte(allowedRoutes.getMaximumLength(i));
+            data.writeShort(0);
+        }
+        for (int node = 0; node < nodeCount; ++node) {
+            data.writeLong(trie.keyHigh[node]);
+            data.writeLong(trie.keyLow[node]);
+            data.writeInt(trie.children[2 * node]);
+            data.writeInt(trie.children[2 * node + 1]);
+            data.writeInt(trie.valueStart[node]);
+            data.writeByte(trie.keyLength[node]);
+            data.writeByte(0);
+            data.writeShort(0);
+        }
+        data.flush();
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write(AllowedRouteSet, Path)} into memory. The header and the indexes in the
+     * nodes are checked, the routes are read on demand.
+     *
+     * @throws IOException when the file cannot be mapped or is not a snapshot
+     */
+    public static AllowedRouteSnapshot map(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("not an allowed route snapshot: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        if (buffer.getInt(0) != FILE_MAGIC) {
+            throw new IOException("not an allowed route snapshot: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != FILE_VERSION) {
+            throw new IOException("unsupported allowed route snapshot version " + version + ": " + file);
+        }
+        int recordCount = buffer.getInt(8);
+        int ipv4Count = buffer.getInt(12);
+        int nodeCount = buffer.getInt(16);
+        int ipv4Root = buffer.getInt(20);
+        int ipv6Root = buffer.getInt(24);
+        if (recordCount < 0 || ipv4Count < 0 || ipv4Count > recordCount || nodeCount < 0
+                || (long) HEADER_SIZE + (long) recordCount * RECORD_SIZE + (long) nodeCount * NODE_SIZE != buffer.capacity()
+                || !isNode(ipv4Root, nodeCount) || !isNode(ipv6Root, nodeCount)) {
+            throw new IOException("invalid allowed route snapshot: " + file);
+        }
+        checkNodes(buffer, recordCount, nodeCount, file);
+        return new AllowedRouteSnapshot(buffer, recordCount, ipv4Count, nodeCount, ipv4Root, ipv6Root);
+    }
+
+    /**
+     * Checks the route and child node indexes of every node, so validation never reads outside the routes and
+     * nodes of a corrupt snapshot.
+     */
+    private static void checkNodes(ByteBuffer buffer, int recordCount, int nodeCount, Path file) throws IOException {
+        int nodeOffset = HEADER_SIZE + recordCount * RECORD_SIZE;
+        int recordStart = 0;
+        for (int node = 0; node < nodeCount; ++node) {
+            int offset = nodeOffset + node * NODE_SIZE;
+            int start = buffer.getInt(offset + NODE_RECORD_START);
+            if (start < recordStart || start > recordCount) {
+                throw new IOException("invalid allowed route snapshot: node " + node + " has first route " + start + ": " + file);
+            }
+            recordStart = start;
+            int length = buffer.get(offset + NODE_PREFIX_LENGTH) & 0xff;
+            if (length > 128) {
+                throw new IOException("invalid allowed route snapshot: node " + node + " has prefix length " + length + ": " + file);
+            }
+            for (int i = 0; i < 2; ++i) {
+                // Children follow their parent, so walking the trie always terminates.
+                int child = buffer.getInt(offset + NODE_CHILDREN + 4 * i);
+                if (child != NONE && (child <= node || child >= nodeCount)) {
+                    throw new IOException("invalid allowed route snapshot: node " + node + " has child " + child + ": " + file);
+                }
+            }
+        }
+    }
+
+    private static boolean isNode(int node, int nodeCount) {
+        return node == NONE || (node >= 0 && node < nodeCount);
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    public AllowedRoute get(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        int record = HEADER_SIZE + index * RECORD_SIZE;
+        IpRange prefix = toPrefix(index < ipv4Count, buffer.getLong(record), buffer.getLong(record + 8), buffer.get(record + RECORD_PREFIX_LENGTH) & 0xff);
+        return new AllowedRoute(new Asn(buffer.getInt(record + RECORD_ASN) & 0xffffffffL), prefix, buffer.get(record + RECORD_MAXIMUM_LENGTH) & 0xff);
+    }
+
+    @Override
+    public Iterator<AllowedRoute> iterator() {
+        return new Iterator<AllowedRoute>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < recordCount;
+            }
+
+            @Override
+            public AllowedRoute next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        return validateRoute(this, announcedRoute);
+    }
+
+    /**
+     * @param address the IPv4 address as an unsigned 32 bit number, like {@link Ipv4Address#longValue()}
+     */
+    @Override
+    public RouteValidityState validateIpv4(long address, int prefixLength, long asn) {
+        return validate(ipv4Root, address << 32, 0, prefixLength, asn);
+    }
+
+    /**
+     * @param high the most significant 64 bits of the IPv6 address
+     * @param low  the least significant 64 bits of the IPv6 address
+     */
+    @Override
+    public RouteValidityState validateIpv6(long high, long low, int prefixLength, long asn) {
+        return validate(ipv6Root, high, low, prefixLength, asn);
+    }
+
+    /**
+     * Same walk as {@link AllowedRouteTrie}, reading the nodes and routes from the buffer.
+     */
+    private RouteValidityState validate(int root, long high, long low, int prefixLength, long asn) {
+        RouteValidityState result = RouteValidityState.UNKNOWN;
+        int node = root;
+        while (node != NONE) {
+            int offset = nodeOffset + node * NODE_SIZE;
+            int length = buffer.get(offset + NODE_PREFIX_LENGTH) & 0xff;
+            if (length > prefixLength || !matches(offset, high, low, length)) {
+                break;
+            }
+            int end = node + 1 < nodeCount ? buffer.getInt(offset + NODE_SIZE + NODE_RECORD_START) : recordCount;
+            for (int i = buffer.getInt(offset + NODE_RECORD_START); i < end; ++i) {
+                int record = HEADER_SIZE + i * RECORD_SIZE;
+                if ((buffer.getInt(record + RECORD_ASN) & 0xffffffffL) != asn) {
+                    result = RouteValidityState.INVALID_ASN;
+                } else if (prefixLength > (buffer.get(record + RECORD_MAXIMUM_LENGTH) & 0xff)) {
+                    result = RouteValidityState.INVALID_LENGTH;
+                } else {
+                    return RouteValidityState.VALID;
+                }
+            }
+            if (length == prefixLength) {
+                break;
+            }
+            node = buffer.getInt(offset + NODE_CHILDREN + 4 * bit(high, low, length));
+        }
+        return result;
+    }
+
+    private boolean matches(int offset, long high, long low, int length) {
+        if (length <= 64) {
+            return (high & mask(length)) == buffer.getLong(offset);
+        }
+        return high == buffer.getLong(offset) && (low & mask(length - 64)) == buffer.getLong(offset + 8);
+    }
+
+    @Override
+    public String toString() {
+        return "AllowedRouteSnapshot [size=" + recordCount + ", ipv4Count=" + ipv4Count + ", nodeCount=" + nodeCount + "]";
+    }
+}
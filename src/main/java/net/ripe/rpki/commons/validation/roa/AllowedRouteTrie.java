@@ -0,0 +1,236 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Ipv4Address;
+
+import java.util.Arrays;
+
+import static net.ripe.rpki.commons.validation.roa.PrefixKeys.*;
+
+/**
+ * Immutable index of allowed routes for route origin validation, an alternative to the
+ * {@link net.ripe.ipresource.etree.NestedIntervalMap} built by
+ * {@link RouteOriginValidationPolicy#allowedRoutesToNestedIntervalMap(Iterable)} that gives the same
+ * {@link RouteValidityState} for every announced route.
+ * <p>
+ * The allowed routes are stored in a path compressed binary (Patricia) trie per address family, flattened into
+ * primitive arrays. Every node holds the (asn, maximum length) pairs of the allowed routes for its prefix packed
+ * into a <code>long</code>. Validating a route walks from the root towards the announced prefix, so only the
+ * covering prefixes are visited. The primitive validate methods do not allocate.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public final class AllowedRouteTrie implements PrefixKeys.PrimitiveRouteValidator {
+
+    static final int NONE = -1;
+    static final int MAXIMUM_LENGTH_BITS = 8;
+    private static final long MAXIMUM_LENGTH_MASK = (1L << MAXIMUM_LENGTH_BITS) - 1;
+
+    // Package private so AllowedRouteSnapshot can write the trie. Nodes are numbered in preorder, so children have
+    // a higher index than their parent, and the values of a trie built from an AllowedRouteSet are in set order.
+    final int ipv4Root;
+    final int ipv6Root;
+
+    // The prefix of every node, left aligned in 128 bits. IPv4 prefixes use the top 32 bits of keyHigh.
+    final long[] keyHigh;
+    final long[] keyLow;
+    final byte[] keyLength;
+    // The child nodes for a 0 and a 1 bit following the prefix are at index 2 * node and 2 * node + 1.
+    final int[] children;
+    // The allowed routes of node n are values[valueStart[n]] up to (excluding) values[valueStart[n + 1]].
+    final int[] valueStart;
+    final long[] values;
+
+    private AllowedRouteTrie(Node ipv4, Node ipv6, int nodeCount, int valueCount) {
+        keyHigh = new long[nodeCount];
+        keyLow = new long[nodeCount];
+        keyLength = new byte[nodeCount];
+        children = new int[2 * nodeCount];
+        valueStart = new int[nodeCount + 1];
+        values = new long[valueCount];
+
+        int[] counters = new int[2];
+        ipv4Root = flatten(ipv4, counters);
+        ipv6Root = flatten(ipv6, counters);
+        valueStart[nodeCount] = valueCount;
+    }
+
+    public static AllowedRouteTrie of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        Node[] roots = new Node[2];
+        int[] counts = new int[2];
+        long[] key = new long[2];
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            int prefixLength = prefixKey(allowedRoute.getPrefix(), key);
+            int family = isIpv4(allowedRoute.getPrefix()) ? 0 : 1;
+            long value = allowedRoute.getAsn().longValue() << MAXIMUM_LENGTH_BITS | allowedRoute.getMaximumLength();
+            roots[family] = insert(roots[family], key[0], key[1], prefixLength, value, counts);
+        }
+        return new AllowedRouteTrie(roots[0], roots[1], counts[0], counts[1]);
+    }
+
+    /**
+     * Builds the trie directly from the columns of the set, without creating {@link AllowedRoute} objects.
+     */
+    public static AllowedRouteTrie of(AllowedRouteSet allowedRoutes) {
+        Node[] roots = new Node[2];
+        int[] counts = new int[2];
+        for (int i = 0; i < allowedRoutes.size(); ++i) {
+            int family = allowedRoutes.isIpv4(i) ? 0 : 1;
+            long value = allowedRoutes.getAsn(i) << MAXIMUM_LENGTH_BITS | allowedRoutes.getMaximumLength(i);
+            roots[family] = insert(roots[family], allowedRoutes.getAddressHigh(i), allowedRoutes.getAddressLow(i), allowedRoutes.getPrefixLength(i), value, counts);
+        }
+        return new AllowedRouteTrie(roots[0], roots[1], counts[0], counts[1]);
+    }
+
+    /**
+     * @return the number of allowed routes in this trie
+     */
+    public int size() {
+        return values.length;
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        return validateRoute(this, announcedRoute);
+    }
+
+    /**
+     * @param address the IPv4 address as an unsigned 32 bit number, like {@link Ipv4Address#longValue()}
+     */
+    @Override
+    public RouteValidityState validateIpv4(long address, int prefixLength, long asn) {
+        return validate(ipv4Root, address << 32, 0, prefixLength, asn);
+    }
+
+    /**
+     * @param high the most significant 64 bits of the IPv6 address
+     * @param low  the least significant 64 bits of the IPv6 address
+     */
+    @Override
+    public RouteValidityState validateIpv6(long high, long low, int prefixLength, long asn) {
+        return validate(ipv6Root, high, low, prefixLength, asn);
+    }
+
+    /**
+     * Same evaluation as {@link RouteOriginValidationPolicy#validateAnnouncedRoute}: the covering allowed routes
+     * are visited from least to most specific and the last invalid state found is the result, unless an allowed
+     * route matches.
+     */
+    private RouteValidityState validate(int root, long high, long low, int prefixLength, long asn) {
+        RouteValidityState result = RouteValidityState.UNKNOWN;
+        int node = root;
+        while (node != NONE) {
+            int length = keyLength[node] & 0xff;
+            if (length > prefixLength || !matches(node, high, low, length)) {
+                break;
+            }
+            for (int i = valueStart[node]; i < valueStart[node + 1]; ++i) {
+                long value = values[i];
+                if (value >>> MAXIMUM_LENGTH_BITS != asn) {
+                    result = RouteValidityState.INVALID_ASN;
+                } else if (prefixLength > (value & MAXIMUM_LENGTH_MASK)) {
+                    result = RouteValidityState.INVALID_LENGTH;
+                } else {
+                    return RouteValidityState.VALID;
+                }
+            }
+            if (length == prefixLength) {
+                break;
+            }
+            node = children[2 * node + bit(high, low, length)];
+        }
+        return result;
+    }
+
+    private boolean matches(int node, long high, long low, int length) {
+        if (length <= 64) {
+            return (high & mask(length)) == keyHigh[node];
+        }
+        return high == keyHigh[node] && (low & mask(length - 64)) == keyLow[node];
+    }
+
+    private int flatten(Node node, int[] counters) {
+        if (node == null) {
+            return NONE;
+        }
+        int index = counters[0]++;
+        keyHigh[index] = node.high;
+        keyLow[index] = node.low;
+        keyLength[index] = (byte) node.length;
+        valueStart[index] = counters[1];
+        System.arraycopy(node.values, 0, values, counters[1], node.valueCount);
+        counters[1] += node.valueCount;
+        children[2 * index] = flatten(node.children[0], counters);
+        children[2 * index + 1] = flatten(node.children[1], counters);
+        return index;
+    }
+
+    /**
+     * Inserts the value for the prefix into the trie rooted at <code>root</code>, splitting nodes where the prefix
+     * diverges from the existing nodes.
+     *
+     * @return the new root
+     */
+    private static Node insert(Node root, long high, long low, int length, long value, int[] counts) {
+        counts[1]++;
+        Node parent = null;
+        int parentBit = 0;
+        Node node = root;
+        while (true) {
+            if (node == null) {
+                node = new Node(high, low, length, counts);
+                node.add(value);
+                return link(root, parent, parentBit, node);
+            }
+            int common = Math.min(Math.min(node.length, length), commonPrefixLength(node.high, node.low, high, low));
+            if (common < node.length) {
+                Node split = new Node(high, low, common, counts);
+                split.children[bit(node.high, node.low, common)] = node;
+                if (common == length) {
+                    split.add(value);
+                } else {
+                    Node leaf = new Node(high, low, length, counts);
+                    leaf.add(value);
+                    split.children[bit(high, low, common)] = leaf;
+                }
+                return link(root, parent, parentBit, split);
+            }
+            if (node.length == length) {
+                node.add(value);
+                return root;
+            }
+            parent = node;
+            parentBit = bit(high, low, node.length);
+            node = node.children[parentBit];
+        }
+    }
+
+    private static Node link(Node root, Node parent, int bit, Node node) {
+        if (parent == null) {
+            return node;
+        }
+        parent.children[bit] = node;
+        return root;
+    }
+
+    private static final class Node {
+        private final long high;
+        private final long low;
+        private final int length;
+        private final Node[] children = new Node[2];
+        private long[] values = new long[1];
+        private int valueCount;
+
+        private Node(long high, long low, int length, int[] counts) {
+            this.high = high & mask(Math.min(length, 64));
+            this.low = length <= 64 ? 0 : low & mask(length - 64);
+            this.length = length;
+            counts[0]++;
+        }
+
+        private void add(long value) {
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, 2 * valueCount);
+            }
+            values[valueCount++] = value;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the current {@link AllowedRouteTrie} to concurrent readers while new versions are built in the
+ * background.
+ * <p>
+ * A new version is built completely before it is published with {@link #publish(AllowedRouteTrie)}, which swaps a
+ * single reference. Readers call {@link #get()} once per query or batch of queries and use that immutable version
+ * without locking, so they never block and never see a partially built index. A previous version remains valid
+ * for readers still using it and is garbage collected once they are done with it.
+ */
+public final class AllowedRouteTrieHolder {
+
+    private final AtomicReference<AllowedRouteTrie> current;
+
+    public AllowedRouteTrieHolder(AllowedRouteTrie initial) {
+        Validate.notNull(initial, "initial allowed routes are required");
+        this.current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * @return the most recently published version
+     */
+    public AllowedRouteTrie get() {
+        return current.get();
+    }
+
+    /**
+     * Makes <code>allowedRoutes</code> the current version for all subsequent queries.
+     *
+     * @return the previously published version
+     */
+    public AllowedRouteTrie publish(AllowedRouteTrie allowedRoutes) {
+        Validate.notNull(allowedRoutes, "allowed routes are required");
+        return current.getAndSet(allowedRoutes);
+    }
+}
@@ -0,0 +1,136 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.etree.IpResourceIntervalStrategy;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the validity state of a set of announced routes up to date while allowed routes are added and removed.
+ * <p>
+ * Next to the allowed routes the announced routes are indexed by prefix, so a change to the allowed routes for a
+ * prefix only revalidates the announced routes for that prefix and its more specifics. The cost of an update is
+ * proportional to the number of affected announcements, not to the size of the routing table.
+ * <p>
+ * Validity states are determined by {@link RouteOriginValidationPolicy}. This class is not thread safe.
+ */
+public class IncrementalRouteOriginValidator {
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    private final NestedIntervalMap<IpResource, List<AllowedRoute>> allowedRoutes;
+
+    private final NestedIntervalMap<IpResource, List<AnnouncedRoute>> announcedRoutesByPrefix = new NestedIntervalMap<>(IpResourceIntervalStrategy.getInstance());
+
+    private final Map<AnnouncedRoute, RouteValidityState> validityStates = new HashMap<>();
+
+    public IncrementalRouteOriginValidator(Iterable<? extends AllowedRoute> allowedRoutes, Iterable<AnnouncedRoute> announcedRoutes) {
+        this.allowedRoutes = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+        for (AnnouncedRoute announcedRoute : announcedRoutes) {
+            announce(announcedRoute);
+        }
+    }
+
+    /**
+     * @return the current validity state of the route, or null when the route is not announced
+     */
+    public RouteValidityState getValidityState(AnnouncedRoute announcedRoute) {
+        return validityStates.get(announcedRoute);
+    }
+
+    /**
+     * @return the validity states of all announced routes
+     */
+    public Map<AnnouncedRoute, RouteValidityState> getValidityStates() {
+        return new HashMap<>(validityStates);
+    }
+
+    /**
+     * Adds an announced route, validating it against the current allowed routes.
+     *
+     * @return the validity state of the route
+     */
+    public RouteValidityState announce(AnnouncedRoute announcedRoute) {
+        RouteValidityState state = validityStates.get(announcedRoute);
+        if (state == null) {
+            addToBucket(announcedRoutesByPrefix, announcedRoute.getPrefix(), announcedRoute);
+            state = policy.validateAnnouncedRoute(allowedRoutes, announcedRoute);
+            validityStates.put(announcedRoute, state);
+        }
+        return state;
+    }
+
+    /**
+     * Removes an announced route.
+     */
+    public void withdraw(AnnouncedRoute announcedRoute) {
+        if (validityStates.remove(announcedRoute) != null) {
+            removeFromBucket(announcedRoutesByPrefix, announcedRoute.getPrefix(), announcedRoute);
+        }
+    }
+
+    /**
+     * Applies a change to the allowed routes and revalidates the announced routes covered by the changed
+     * prefixes. Removed routes are applied before added routes, removing an allowed route that is not present has
+     * no effect.
+     *
+     * @return the new validity state of every announced route for which it changed
+     */
+    public Map<AnnouncedRoute, RouteValidityState> update(Collection<? extends AllowedRoute> added, Collection<? extends AllowedRoute> removed) {
+        Set<IpRange> changedPrefixes = new LinkedHashSet<>();
+        for (AllowedRoute allowedRoute : removed) {
+            if (removeFromBucket(allowedRoutes, allowedRoute.getPrefix(), allowedRoute)) {
+                changedPrefixes.add(allowedRoute.getPrefix());
+            }
+        }
+        for (AllowedRoute allowedRoute : added) {
+            addToBucket(allowedRoutes, allowedRoute.getPrefix(), allowedRoute);
+            changedPrefixes.add(allowedRoute.getPrefix());
+        }
+
+        Set<AnnouncedRoute> affected = new LinkedHashSet<>();
+        for (IpRange prefix : changedPrefixes) {
+            for (List<AnnouncedRoute> announced : announcedRoutesByPrefix.findExactAndAllMoreSpecific(prefix)) {
+                affected.addAll(announced);
+            }
+        }
+
+        Map<AnnouncedRoute, RouteValidityState> changed = new LinkedHashMap<>();
+        for (AnnouncedRoute announcedRoute : affected) {
+            RouteValidityState state = policy.validateAnnouncedRoute(allowedRoutes, announcedRoute);
+            if (validityStates.put(announcedRoute, state) != state) {
+                changed.put(announcedRoute, state);
+            }
+        }
+        return changed;
+    }
+
+    private static <T> void addToBucket(NestedIntervalMap<IpResource, List<T>> map, IpRange prefix, T value) {
+        List<T> bucket = map.findExact(prefix);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            map.put(prefix, bucket);
+        }
+        bucket.add(value);
+    }
+
+    private static <T> boolean removeFromBucket(NestedIntervalMap<IpResource, List<T>> map, IpRange prefix, T value) {
+        List<T> bucket = map.findExact(prefix);
+        if (bucket == null || !bucket.remove(value)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            map.remove(prefix);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpAddress;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import net.ripe.ipresource.UniqueIpResource;
+
+import java.math.BigInteger;
+
+/**
+ * Conversion between IP prefixes and their primitive representation as 128 bits, split in a high and a low
+ * <code>long</code>, with the address left aligned. IPv4 addresses use the top 32 bits of the high word.
+ */
+final class PrefixKeys {
+
+    private PrefixKeys() {
+    }
+
+    /**
+     * An index of allowed routes that validates routes in their primitive representation.
+     */
+    interface PrimitiveRouteValidator {
+
+        RouteValidityState validateIpv4(long address, int prefixLength, long asn);
+
+        RouteValidityState validateIpv6(long high, long low, int prefixLength, long asn);
+    }
+
+    /**
+     * Validates the announced route with the primitive validate method for its address family, converting the
+     * prefix without allocating.
+     */
+    static RouteValidityState validateRoute(PrimitiveRouteValidator validator, AnnouncedRoute announcedRoute) {
+        IpRange prefix = announcedRoute.getPrefix();
+        long asn = announcedRoute.getOriginAsn().longValue();
+        UniqueIpResource start = prefix.getStart();
+        if (start instanceof Ipv4Address) {
+            long address = ((Ipv4Address) start).longValue();
+            int prefixLength = Long.numberOfLeadingZeros(address ^ ((Ipv4Address) prefix.getEnd()).longValue()) - 32;
+            return validator.validateIpv4(address, prefixLength, asn);
+        }
+        BigInteger startValue = start.getValue();
+        BigInteger endValue = prefix.getEnd().getValue();
+        long high = high64(startValue);
+        long low = startValue.longValue();
+        return validator.validateIpv6(high, low, commonPrefixLength(high, low, high64(endValue), endValue.longValue()), asn);
+    }
+
+    static boolean isIpv4(IpRange prefix) {
+        return prefix.getStart() instanceof Ipv4Address;
+    }
+
+    /**
+     * Stores the start address of the prefix left aligned in <code>key</code>.
+     *
+     * @return the prefix length
+     */
+    static int prefixKey(IpRange prefix, long[] key) {
+        UniqueIpResource start = prefix.getStart();
+        if (start instanceof Ipv4Address) {
+            long address = ((Ipv4Address) start).longValue();
+            key[0] = address << 32;
+            key[1] = 0;
+            return Long.numberOfLeadingZeros(address ^ ((Ipv4Address) prefix.getEnd()).longValue()) - 32;
+        }
+        BigInteger startValue = start.getValue();
+        BigInteger endValue = prefix.getEnd().getValue();
+        key[0] = high64(startValue);
+        key[1] = startValue.longValue();
+        return commonPrefixLength(key[0], key[1], high64(endValue), endValue.longValue());
+    }
+
+    static IpRange toPrefix(boolean ipv4, long high, long low, int prefixLength) {
+        IpAddress address;
+        if (ipv4) {
+            address = new Ipv4Address(high >>> 32);
+        } else {
+            byte[] bytes = new byte[16];
+            for (int i = 0; i < 8; ++i) {
+                bytes[i] = (byte) (high >>> (56 - 8 * i));
+                bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+            }
+            address = new Ipv6Address(new BigInteger(1, bytes));
+        }
+        return IpRange.prefix(address, prefixLength);
+    }
+
+    /**
+     * @return the most significant 64 bits of a 128 bit value, without allocating
+     */
+    static long high64(BigInteger value) {
+        long result = 0;
+        for (int i = 0; i < 64; ++i) {
+            if (value.testBit(64 + i)) {
+                result |= 1L << i;
+            }
+        }
+        return result;
+    }
+
+    static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        long difference = high1 ^ high2;
+        if (difference != 0) {
+            return Long.numberOfLeadingZeros(difference);
+        }
+        return 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    static int bit(long high, long low, int position) {
+        return (int) (position < 64 ? high >>> (63 - position) : low >>> (127 - position)) & 1;
+    }
+
+    /**
+     * @return a mask of the first <code>length</code> bits of a 64 bit word
+     */
+    static long mask(int length) {
+        return length == 0 ? 0 : -1L << (64 - length);
+    }
+}
@@ -5,8 +5,14 @@ import net.ripe.ipresource.IpResource;
 import net.ripe.ipresource.etree.IpResourceIntervalStrategy;
 import net.ripe.ipresource.etree.NestedIntervalMap;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 
 /**
@@ -14,6 +20,9 @@ import java.util.List;
  */
 public class RouteOriginValidationPolicy {
 
+    // Number of routes below which bulk validation does not split the work any further.
+    private static final int BULK_VALIDATION_THRESHOLD = 4096;
+
     public static NestedIntervalMap<IpResource, List<AllowedRoute>> allowedRoutesToNestedIntervalMap(Iterable<? extends AllowedRoute> allowedRoutes) {
         NestedIntervalMap<IpResource, List<AllowedRoute>> result = new NestedIntervalMap<IpResource, List<AllowedRoute>>(IpResourceIntervalStrategy.getInstance());
         for (AllowedRoute allowedRoute : allowedRoutes) {
@@ -50,6 +59,120 @@ public class RouteOriginValidationPolicy {
         return result;
     }
 
+    /**
+     * Validates the announced route against allowed routes indexed by {@link AllowedRouteTrie#of(Iterable)}, with
+     * the same result as validating against {@link #allowedRoutesToNestedIntervalMap(Iterable)}.
+     */
+    public RouteValidityState validateAnnouncedRoute(AllowedRouteTrie allowedRoutes, AnnouncedRoute announcedRoute) {
+        return allowedRoutes.validate(announcedRoute);
+    }
+
+    /**
+     * Validates the announced route against the currently published version of the allowed routes, without
+     * locking.
+     */
+    public RouteValidityState validateAnnouncedRoute(AllowedRouteTrieHolder allowedRoutes, AnnouncedRoute announcedRoute) {
+        return allowedRoutes.get().validate(announcedRoute);
+    }
+
+    /**
+     * Validates the announced route directly against a memory mapped {@link AllowedRouteSnapshot}, with the same
+     * result as validating against {@link #allowedRoutesToNestedIntervalMap(Iterable)} of the snapshot.
+     */
+    public RouteValidityState validateAnnouncedRoute(AllowedRouteSnapshot allowedRoutes, AnnouncedRoute announcedRoute) {
+        return allowedRoutes.validate(announcedRoute);
+    }
+
+    /**
+     * Validates all announced routes, splitting the work over the threads of the pool. The trie is immutable, so
+     * it is shared by all threads without locking.
+     *
+     * @return the validity states in the order of <code>announcedRoutes</code>
+     */
+    public List<RouteValidityState> validateAnnouncedRoutes(AllowedRouteTrie allowedRoutes, List<? extends AnnouncedRoute> announcedRoutes, ForkJoinPool pool) {
+        RouteValidityState[] result = new RouteValidityState[announcedRoutes.size()];
+        pool.invoke(new ValidateAction(allowedRoutes, announcedRoutes, result, 0, result.length));
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Validates all announced routes like {@link #validateAnnouncedRoutes(AllowedRouteTrie, List, ForkJoinPool)},
+     * but only counts the routes per validity state.
+     *
+     * @return the number of announced routes for every validity state
+     */
+    public Map<RouteValidityState, Long> countAnnouncedRoutes(AllowedRouteTrie allowedRoutes, List<? extends AnnouncedRoute> announcedRoutes, ForkJoinPool pool) {
+        long[] counts = pool.invoke(new CountTask(allowedRoutes, announcedRoutes, 0, announcedRoutes.size()));
+        Map<RouteValidityState, Long> result = new EnumMap<>(RouteValidityState.class);
+        for (RouteValidityState state : RouteValidityState.values()) {
+            result.put(state, counts[state.ordinal()]);
+        }
+        return result;
+    }
+
+    private static final class ValidateAction extends RecursiveAction {
+        private final AllowedRouteTrie allowedRoutes;
+        private final List<? extends AnnouncedRoute> announcedRoutes;
+        private final RouteValidityState[] result;
+        private final int from;
+        private final int to;
+
+        private ValidateAction(AllowedRouteTrie allowedRoutes, List<? extends AnnouncedRoute> announcedRoutes, RouteValidityState[] result, int from, int to) {
+            this.allowedRoutes = allowedRoutes;
+            this.announcedRoutes = announcedRoutes;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BULK_VALIDATION_THRESHOLD) {
+                for (int i = from; i < to; ++i) {
+                    result[i] = allowedRoutes.validate(announcedRoutes.get(i));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ValidateAction(allowedRoutes, announcedRoutes, result, from, middle),
+                        new ValidateAction(allowedRoutes, announcedRoutes, result, middle, to));
+            }
+        }
+    }
+
+    private static final class CountTask extends RecursiveTask<long[]> {
+        private final AllowedRouteTrie allowedRoutes;
+        private final List<? extends AnnouncedRoute> announcedRoutes;
+        private final int from;
+        private final int to;
+
+        private CountTask(AllowedRouteTrie allowedRoutes, List<? extends AnnouncedRoute> announcedRoutes, int from, int to) {
+            this.allowedRoutes = allowedRoutes;
+            this.announcedRoutes = announcedRoutes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= BULK_VALIDATION_THRESHOLD) {
+                long[] counts = new long[RouteValidityState.values().length];
+                for (int i = from; i < to; ++i) {
+                    counts[allowedRoutes.validate(announcedRoutes.get(i)).ordinal()]++;
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            CountTask right = new CountTask(allowedRoutes, announcedRoutes, middle, to);
+            right.fork();
+            long[] counts = new CountTask(allowedRoutes, announcedRoutes, from, middle).compute();
+            long[] rightCounts = right.join();
+            for (int i = 0; i < counts.length; ++i) {
+                counts[i] += rightCounts[i];
+            }
+            return counts;
+        }
+    }
+
     private RouteValidityState validate(AllowedRoute allowedRoute, AnnouncedRoute announcedRoute) {
         IpRange announcedPrefix = announcedRoute.getPrefix();
 
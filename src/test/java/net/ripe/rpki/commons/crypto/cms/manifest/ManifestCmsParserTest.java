@@ -22,7 +22,6 @@ import java.net.URI;
 import java.security.KeyPair;
 import java.util.EnumSet;
 import java.util.Map;
-import java.util.TreeMap;
 
 import static net.ripe.rpki.commons.crypto.util.Asn1Util.*;
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
@@ -159,8 +158,9 @@ public class ManifestCmsParserTest {
 
     @Test
     public void shouldDecodeFileAndHash() {
-        Map<String, byte[]> actual = new TreeMap<String, byte[]>();
-        parser.decodeFileAndHash(actual, decode(ENCODED_FILE_AND_HASH_1));
+        ManifestEntries.Builder builder = new ManifestEntries.Builder();
+        parser.decodeFileAndHash(builder, decode(ENCODED_FILE_AND_HASH_1));
+        Map<String, byte[]> actual = builder.build().asMap();
         assertEquals(1, actual.size());
         assertTrue(actual.containsKey("foo1"));
         assertArrayEquals(FOO_HASH, actual.get("foo1"));
@@ -168,15 +168,17 @@ public class ManifestCmsParserTest {
 
     @Test
     public void shouldDecodeEmptyFileList() {
-        Map<String, byte[]> actual = new TreeMap<String, byte[]>();
-        parser.decodeFileList(actual, decode(ENCODED_EMPTY_FILE_LIST));
+        ManifestEntries.Builder builder = new ManifestEntries.Builder();
+        parser.decodeFileList(builder, decode(ENCODED_EMPTY_FILE_LIST));
+        Map<String, byte[]> actual = builder.build().asMap();
         assertTrue(actual.isEmpty());
     }
 
     @Test
     public void shouldDecodeFileList() {
-        Map<String, byte[]> actual = new TreeMap<String, byte[]>();
-        parser.decodeFileList(actual, decode(ENCODED_FILE_LIST));
+        ManifestEntries.Builder builder = new ManifestEntries.Builder();
+        parser.decodeFileList(builder, decode(ENCODED_FILE_LIST));
+        Map<String, byte[]> actual = builder.build().asMap();
         assertEquals(2, actual.size());
         assertTrue(actual.containsKey("foo1"));
         assertArrayEquals(FOO_HASH, actual.get("foo1"));
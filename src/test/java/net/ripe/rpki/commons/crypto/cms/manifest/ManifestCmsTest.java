@@ -28,19 +28,37 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigInteger;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor.ID_AD_SIGNED_OBJECT;
@@ -79,6 +97,9 @@ public class ManifestCmsTest {
         files.put("filename2.roa", FILE2_CONTENTS);
     }
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private CrlLocator crlLocator;
     private ManifestCms subject;
     private X509ResourceCertificate rootCertificate;
@@ -122,6 +143,181 @@ public class ManifestCmsTest {
         assertFalse(spec.isSatisfiedBy(FILE1_CONTENTS));
     }
 
+    @Test
+    public void shouldVerifyFiles() throws IOException {
+        Path file1 = temporaryFolder.newFile("filename1.cer").toPath();
+        Files.write(file1, FILE1_CONTENTS);
+        Map<String, ManifestFileSource> sources = new HashMap<>();
+        sources.put("filename1.cer", ManifestFileSource.of(file1));
+        sources.put("filename2.roa", () -> Channels.newChannel(new ByteArrayInputStream(FILE1_CONTENTS)));
+        sources.put("filename3.crl", () -> Channels.newChannel(new ByteArrayInputStream(FILE2_CONTENTS)));
+
+        SortedMap<String, ManifestFileStatus> result = subject.verifyFiles(sources, ForkJoinPool.commonPool());
+
+        assertEquals(Arrays.asList("filename1.cer", "filename2.roa", "filename3.crl"), new ArrayList<>(result.keySet()));
+        assertEquals(ManifestFileStatus.MATCHES, result.get("filename1.cer"));
+        assertEquals(ManifestFileStatus.HASH_MISMATCH, result.get("filename2.roa"));
+        assertEquals(ManifestFileStatus.NOT_ON_MANIFEST, result.get("filename3.crl"));
+    }
+
+    @Test
+    public void shouldVerifyFileOnDisk() throws IOException {
+        Path file1 = temporaryFolder.newFile("filename1.cer").toPath();
+        Files.write(file1, FILE1_CONTENTS);
+        Path empty = temporaryFolder.newFile("empty.cer").toPath();
+        byte[] largeContent = new byte[3 * 1024 * 1024 + 17];
+        new Random(22).nextBytes(largeContent);
+        Path large = temporaryFolder.newFile("large.roa").toPath();
+        Files.write(large, largeContent);
+        ManifestCmsBuilder builder = getRootManifestBuilder();
+        builder.addFile("large.roa", largeContent);
+        builder.addFile("empty.cer", new byte[0]);
+        ManifestCms manifest = builder.build(MANIFEST_KEY_PAIR.getPrivate());
+
+        assertTrue(subject.verifyFile("filename1.cer", file1));
+        assertFalse(subject.verifyFile("filename2.roa", file1));
+        assertTrue(manifest.verifyFile("large.roa", large));
+        assertFalse(manifest.verifyFile("large.roa", file1));
+        assertTrue(manifest.verifyFile("empty.cer", empty));
+        assertEquals(ManifestFileStatus.MATCHES, manifest.verifyFiles(Collections.singletonMap("large.roa", ManifestFileSource.of(large)), ForkJoinPool.commonPool()).get("large.roa"));
+    }
+
+    @Test
+    public void shouldReportMissingAndUnreadableFiles() {
+        Map<String, ManifestFileSource> sources = new HashMap<>();
+        sources.put("filename1.cer", ManifestFileSource.of(temporaryFolder.getRoot().toPath().resolve("does-not-exist.cer")));
+
+        SortedMap<String, ManifestFileStatus> result = subject.verifyFiles(sources, ForkJoinPool.commonPool());
+
+        assertEquals(ManifestFileStatus.UNREADABLE, result.get("filename1.cer"));
+        assertEquals(ManifestFileStatus.MISSING, result.get("filename2.roa"));
+    }
+
+    @Test
+    public void shouldVerifyManyFilesLikeVerifyFileContents() {
+        Random random = new Random(21);
+        ManifestCmsBuilder builder = getRootManifestBuilder();
+        Map<String, byte[]> contents = new HashMap<>();
+        Map<String, ManifestFileSource> sources = new HashMap<>();
+        for (int i = 0; i < 1000; ++i) {
+            byte[] content = new byte[1 + random.nextInt(100000)];
+            random.nextBytes(content);
+            String name = "file" + i + ".roa";
+            builder.addFile(name, content);
+            if (random.nextInt(10) == 0) {
+                content = content.clone();
+                content[random.nextInt(content.length)] ^= 1;
+            }
+            byte[] actual = content;
+            contents.put(name, actual);
+            sources.put(name, () -> Channels.newChannel(new ByteArrayInputStream(actual)));
+        }
+        ManifestCms manifest = builder.build(MANIFEST_KEY_PAIR.getPrivate());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        SortedMap<String, ManifestFileStatus> result;
+        try {
+            result = manifest.verifyFiles(sources, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(1000, result.size());
+        contents.forEach((name, content) -> assertEquals(name,
+                manifest.verifyFileContents(name, content) ? ManifestFileStatus.MATCHES : ManifestFileStatus.HASH_MISMATCH,
+                result.get(name)));
+    }
+
+    @Test
+    public void shouldVerifyFilesWhileReadsBlock() {
+        ManifestCmsBuilder builder = getRootManifestBuilder();
+        Map<String, ManifestFileSource> sources = new TreeMap<>();
+        for (int i = 0; i < 32; ++i) {
+            builder.addFile(String.format("file%02d.roa", i), FILE1_CONTENTS);
+        }
+        // Every read waits for a read of the other half of the files, which needs a second thread.
+        CountDownLatch reads = new CountDownLatch(2);
+        for (int i = 0; i < 32; ++i) {
+            boolean blocking = i == 0 || i == 31;
+            sources.put(String.format("file%02d.roa", i), () -> {
+                if (blocking) {
+                    reads.countDown();
+                    try {
+                        if (!reads.await(10, TimeUnit.SECONDS)) {
+                            throw new IOException("no other read");
+                        }
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+                return Channels.newChannel(new ByteArrayInputStream(FILE1_CONTENTS));
+            });
+        }
+        ManifestCms manifest = builder.build(MANIFEST_KEY_PAIR.getPrivate());
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        SortedMap<String, ManifestFileStatus> result;
+        try {
+            result = manifest.verifyFiles(sources, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(Collections.singleton(ManifestFileStatus.MATCHES), new HashSet<>(result.values()));
+    }
+
+    @Test
+    public void shouldDiffManifests() {
+        ManifestCmsBuilder builder = getRootManifestBuilder();
+        builder.addFile("filename1.cer", FILE2_CONTENTS);
+        builder.addFile("filename3.crl", FILE1_CONTENTS);
+        ManifestCms current = builder.build(MANIFEST_KEY_PAIR.getPrivate());
+
+        ManifestDiff diff = current.diff(subject);
+
+        assertEquals(Collections.singletonList("filename3.crl"), diff.getAdded());
+        assertEquals(Collections.singletonList("filename2.roa"), diff.getRemoved());
+        assertEquals(Collections.singletonList("filename1.cer"), diff.getChanged());
+        assertFalse(diff.isEmpty());
+        assertTrue(subject.diff(getRootManifestCms()).isEmpty());
+    }
+
+    @Test
+    public void shouldDiffRandomManifests() {
+        Random random = new Random(24);
+        ManifestCmsBuilder previousBuilder = getRootManifestBuilder();
+        ManifestCmsBuilder currentBuilder = getRootManifestBuilder();
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            String name = String.format("file%04d.roa", i);
+            byte[] content = {(byte) i, (byte) (i >> 8)};
+            switch (random.nextInt(8)) {
+                case 0:
+                    currentBuilder.addFile(name, content);
+                    added.add(name);
+                    break;
+                case 1:
+                    previousBuilder.addFile(name, content);
+                    removed.add(name);
+                    break;
+                case 2:
+                    previousBuilder.addFile(name, content);
+                    currentBuilder.addFile(name, new byte[]{(byte) i});
+                    changed.add(name);
+                    break;
+                default:
+                    previousBuilder.addFile(name, content);
+                    currentBuilder.addFile(name, content);
+            }
+        }
+
+        ManifestDiff diff = currentBuilder.build(MANIFEST_KEY_PAIR.getPrivate()).diff(previousBuilder.build(MANIFEST_KEY_PAIR.getPrivate()));
+
+        assertEquals(new ManifestDiff(added, removed, changed), diff);
+    }
+
     @Test
     public void shouldValidateManifestCms() {
         X509Crl crl = getRootCrl();
@@ -0,0 +1,116 @@
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ManifestEntriesTest {
+
+    private static final byte[] HASH_1 = hash(1);
+    private static final byte[] HASH_2 = hash(2);
+
+    @Test
+    public void shouldStoreEntriesInNameOrder() {
+        ManifestEntries subject = new ManifestEntries.Builder()
+                .add("b.roa", HASH_2)
+                .add("a.cer", HASH_1)
+                .build();
+
+        assertEquals(2, subject.size());
+        assertEquals(Arrays.asList("a.cer", "b.roa"), new ArrayList<>(subject.names()));
+        assertEquals(0, subject.indexOf("a.cer"));
+        assertTrue(subject.indexOf("c.crl") < 0);
+        assertArrayEquals(HASH_2, subject.getHash(1));
+        assertTrue(subject.hashEquals(1, HASH_2));
+        assertFalse(subject.hashEquals(1, HASH_1));
+        assertFalse(subject.hashEquals(1, Arrays.copyOf(HASH_2, 31)));
+    }
+
+    @Test
+    public void shouldKeepLastEntryWithSameName() {
+        ManifestEntries subject = new ManifestEntries.Builder()
+                .add("a.cer", HASH_1)
+                .add("b.roa", HASH_1)
+                .add("a.cer", HASH_2)
+                .build();
+
+        assertEquals(2, subject.size());
+        assertArrayEquals(HASH_2, subject.asMap().get("a.cer"));
+    }
+
+    @Test
+    public void shouldSupportHashesOfDifferentLengths() {
+        ManifestEntries subject = new ManifestEntries.Builder()
+                .add("a.cer", new byte[]{1, 2, 3})
+                .add("b.roa", new byte[0])
+                .add("c.crl", HASH_1)
+                .build();
+
+        assertArrayEquals(new byte[]{1, 2, 3}, subject.getHash(0));
+        assertArrayEquals(new byte[0], subject.getHash(1));
+        assertArrayEquals(HASH_1, subject.getHash(2));
+        assertTrue(subject.hashEquals(2, HASH_1));
+    }
+
+    @Test
+    public void shouldProvideUnmodifiableMapViewWithCopiedHashes() {
+        ManifestEntries subject = new ManifestEntries.Builder().add("a.cer", HASH_1).build();
+        Map<String, byte[]> map = subject.asMap();
+
+        map.get("a.cer")[0] = 42;
+        assertArrayEquals(HASH_1, map.get("a.cer"));
+        assertNull(map.get("b.roa"));
+        assertNull(map.get(1));
+        assertTrue(map.containsKey("a.cer"));
+        assertFalse(map.containsKey(null));
+        try {
+            map.put("b.roa", HASH_2);
+            fail("map is modifiable");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            subject.names().remove("a.cer");
+            fail("names are modifiable");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void shouldBehaveLikeTreeMap() {
+        Random random = new Random(23);
+        ManifestEntries.Builder builder = new ManifestEntries.Builder();
+        TreeMap<String, byte[]> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; ++i) {
+            String name = Integer.toString(random.nextInt(3000), 36) + ".roa";
+            byte[] hash = hash(random.nextInt());
+            builder.add(name, hash);
+            expected.put(name, hash);
+        }
+        ManifestEntries subject = builder.build();
+
+        assertEquals(expected.keySet(), subject.names());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(subject.names()));
+        int index = 0;
+        Iterator<String> expectedNames = expected.keySet().iterator();
+        for (Map.Entry<String, byte[]> entry : subject.asMap().entrySet()) {
+            assertEquals(expectedNames.next(), entry.getKey());
+            assertArrayEquals(expected.get(entry.getKey()), entry.getValue());
+            assertEquals(index, subject.indexOf(entry.getKey()));
+            index++;
+        }
+        assertEquals(expected.size(), index);
+    }
+
+    private static byte[] hash(int seed) {
+        byte[] result = new byte[32];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+}
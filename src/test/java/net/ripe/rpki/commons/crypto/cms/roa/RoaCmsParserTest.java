@@ -3,6 +3,8 @@ package net.ripe.rpki.commons.crypto.cms.roa;
 import net.ripe.ipresource.Asn;
 import net.ripe.ipresource.IpRange;
 import net.ripe.ipresource.IpResourceType;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationResult;
 import org.bouncycastle.asn1.BERTags;
 import org.junit.Before;
 import org.junit.Test;
@@ -132,4 +134,19 @@ public class RoaCmsParserTest {
         assertEquals(ipv4Prefixes, roa.getPrefixes());
     }
 
+    @Test
+    public void shouldParseValidRoaAfterInvalidObjectWithSharedVerdictOnlyResult() {
+        ValidationResult result = ValidationResult.withLocation("invalid.roa").withVerdictOnly();
+        new RoaCmsParser().parse(result, new byte[]{0x30, 0x00});
+        assertTrue(result.hasFailureForCurrentLocation());
+
+        result.setLocation(new ValidationLocation("valid.roa"));
+        RoaCmsParser validParser = new RoaCmsParser();
+        validParser.parse(result, RoaCmsTest.createRoaCms(allPrefixes).getEncoded());
+
+        assertFalse(result.hasFailureForCurrentLocation());
+        assertTrue(validParser.isSuccess());
+        assertEquals(allPrefixes, validParser.getRoaCms().getPrefixes());
+    }
+
 }
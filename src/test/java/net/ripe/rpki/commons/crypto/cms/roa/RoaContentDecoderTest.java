@@ -0,0 +1,176 @@
+package net.ripe.rpki.commons.crypto.cms.roa;
+
+import net.ripe.rpki.commons.validation.ValidationCheck;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.asn1.BERTags;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParserTest.*;
+import static org.junit.Assert.*;
+
+public class RoaContentDecoderTest {
+
+    private static final byte[] ENCODED_ROUTE_ORIGIN_ATTESTATION_ALL = concat(new byte[]{
+            BERTags.SEQUENCE | BERTags.CONSTRUCTED, 0x32,
+            BERTags.INTEGER, 0x03, 0x00, (byte) 0x80, 0x00, // AS32768
+    }, ENCODED_ROA_IP_ADDRESS_FAMILY_SEQUENCE_ALL);
+
+    @Test
+    public void shouldDecodeRouteOriginAttestation() {
+        RoaContentDecoder subject = new RoaContentDecoder();
+
+        assertTrue(subject.decode(ENCODED_ROUTE_ORIGIN_ATTESTATION));
+
+        assertEquals(TEST_ASN.longValue(), subject.getAsn());
+        assertEquals(Arrays.asList(TEST_IPV4_PREFIX_1, TEST_IPV4_PREFIX_2), subject.getRoaPrefixes());
+        assertEquals(0x0a400000L << 32, subject.getAddressHigh(0));
+        assertEquals(12, subject.getPrefixLength(0));
+        assertEquals(24, subject.getMaximumLength(0));
+        assertEquals(-1, subject.getMaximumLength(1));
+    }
+
+    @Test
+    public void shouldDecodeIpv6Prefixes() {
+        RoaContentDecoder subject = new RoaContentDecoder();
+
+        assertTrue(subject.decode(ENCODED_ROUTE_ORIGIN_ATTESTATION_ALL));
+
+        assertEquals(32768, subject.getAsn());
+        assertEquals(Arrays.asList(TEST_IPV4_PREFIX_1, TEST_IPV4_PREFIX_2, TEST_IPV6_PREFIX), subject.getRoaPrefixes());
+        assertFalse(subject.isIpv4(2));
+        assertEquals(0x2001000002000000L, subject.getAddressHigh(2));
+    }
+
+    @Test
+    public void shouldLeaveUncommonEncodingsToGenericParser() {
+        RoaContentDecoder subject = new RoaContentDecoder();
+        byte[] valid = ENCODED_ROUTE_ORIGIN_ATTESTATION;
+
+        assertFalse("trailing data", subject.decode(concat(valid, new byte[]{0})));
+        assertFalse("truncated", subject.decode(Arrays.copyOf(valid, valid.length - 1)));
+        assertFalse("empty", subject.decode(new byte[0]));
+        byte[] indefiniteLength = valid.clone();
+        indefiniteLength[1] = (byte) 0x80;
+        assertFalse("indefinite length", subject.decode(indefiniteLength));
+        assertFalse("version", subject.decode(concat(new byte[]{BERTags.SEQUENCE | BERTags.CONSTRUCTED, 0x21, (byte) 0xa0, 0x03, BERTags.INTEGER, 0x01, 0x00}, Arrays.copyOfRange(valid, 2, valid.length))));
+        byte[] maximumLengthTooShort = valid.clone();
+        maximumLengthTooShort[indexOf(valid, new byte[]{BERTags.INTEGER, 0x01, 0x18}) + 2] = 11;
+        assertFalse("maximum length shorter than prefix", subject.decode(maximumLengthTooShort));
+        byte[] padBitsSet = valid.clone();
+        padBitsSet[indexOf(valid, new byte[]{0x04, 0x0a, 0x40}) + 2] = 0x41;
+        assertFalse("pad bits not zero", subject.decode(padBitsSet));
+    }
+
+    @Test
+    public void shouldParseLikeGenericParserForConformanceAndInteropRoas() throws IOException, CMSException {
+        List<File> files = new ArrayList<>(FileUtils.listFiles(new File("src/test/resources/conformance/root"), new String[]{"roa"}, false));
+        files.addAll(FileUtils.listFiles(new File("src/test/resources/interop"), new String[]{"roa"}, true));
+        assertTrue(files.size() > 100);
+
+        for (File file : files) {
+            byte[] encoded = FileUtils.readFileToByteArray(file);
+            RoaCmsParser parser = new RoaCmsParser();
+            RoaCmsParser genericParser = new GenericRoaCmsParser();
+            parser.parse(ValidationResult.withLocation(file.getName()), encoded);
+            genericParser.parse(ValidationResult.withLocation(file.getName()), encoded);
+
+            assertSameResult(file.getName(), genericParser, parser);
+            if (file.getName().startsWith("goodROA")) {
+                byte[] content = (byte[]) new CMSSignedData(encoded).getSignedContent().getContent();
+                assertTrue(file.getName(), new RoaContentDecoder().decode(content));
+            }
+        }
+    }
+
+    @Test
+    public void shouldParseLikeGenericParserForMutatedContent() throws IOException {
+        Random random = new Random(19);
+        byte[] roa = RoaCmsTest.createRoaCms(Arrays.asList(TEST_IPV4_PREFIX_1, TEST_IPV6_PREFIX)).getEncoded();
+        List<byte[]> contents = new ArrayList<>();
+        for (byte[] valid : Arrays.asList(ENCODED_ROUTE_ORIGIN_ATTESTATION, ENCODED_ROUTE_ORIGIN_ATTESTATION_ALL)) {
+            contents.add(valid);
+            for (int i = 0; i < 1000; ++i) {
+                byte[] mutated = valid.clone();
+                for (int j = random.nextInt(3); j >= 0; --j) {
+                    mutated[random.nextInt(mutated.length)] = (byte) random.nextInt(256);
+                }
+                contents.add(mutated);
+                contents.add(Arrays.copyOf(valid, random.nextInt(valid.length)));
+            }
+        }
+
+        for (byte[] content : contents) {
+            RoaCmsParser parser = new RoaCmsParser();
+            RoaCmsParser genericParser = new GenericRoaCmsParser();
+            parser.parse(ValidationResult.withLocation("test.roa"), roa);
+            genericParser.parse(ValidationResult.withLocation("test.roa"), roa);
+
+            String message = Arrays.toString(content);
+            RuntimeException genericException = null;
+            try {
+                genericParser.decodeRawContent(content);
+            } catch (RuntimeException e) {
+                genericException = e;
+            }
+            try {
+                parser.decodeRawContent(content);
+                assertNull(message, genericException);
+            } catch (RuntimeException e) {
+                assertNotNull(message, genericException);
+                assertEquals(message, genericException.getClass(), e.getClass());
+            }
+            assertSameResult(message, genericParser, parser);
+        }
+    }
+
+    private static void assertSameResult(String message, RoaCmsParser expected, RoaCmsParser actual) {
+        assertEquals(message, checks(expected.getValidationResult()), checks(actual.getValidationResult()));
+        assertEquals(message, expected.isSuccess(), actual.isSuccess());
+        if (expected.isSuccess()) {
+            RoaCms expectedRoa = expected.getRoaCms();
+            RoaCms actualRoa = actual.getRoaCms();
+            assertEquals(message, expectedRoa.getAsn(), actualRoa.getAsn());
+            assertEquals(message, expectedRoa.getPrefixes(), actualRoa.getPrefixes());
+        }
+    }
+
+    private static List<ValidationCheck> checks(ValidationResult result) {
+        return result.getAllValidationChecksForCurrentLocation();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; ++i) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + part.length), part)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not found");
+    }
+
+    /**
+     * Parses the content with the generic ASN.1 parser only.
+     */
+    private static final class GenericRoaCmsParser extends RoaCmsParser {
+        @Override
+        protected void decodeRawContent(byte[] content) throws IOException {
+            decodeRawContent(new ByteArrayInputStream(content));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package net.ripe.rpki.commons.crypto.crl;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RevokedSerialIndexTest {
+
+    private static final BigInteger LARGE_SERIAL = new BigInteger("a5b1c2d3e4f5061728394a5b6c7d8e9f00112233", 16);
+
+    @Test
+    public void shouldFindSmallAndLargeSerials() {
+        RevokedSerialIndex subject = RevokedSerialIndex.of(Arrays.asList(
+                BigInteger.valueOf(42), LARGE_SERIAL, BigInteger.ONE, BigInteger.valueOf(Long.MAX_VALUE), BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)
+        ));
+
+        assertEquals(5, subject.size());
+        assertTrue(subject.contains(BigInteger.ONE));
+        assertTrue(subject.contains(BigInteger.valueOf(42)));
+        assertTrue(subject.contains(BigInteger.valueOf(Long.MAX_VALUE)));
+        assertTrue(subject.contains(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)));
+        assertTrue(subject.contains(LARGE_SERIAL));
+
+        assertFalse(subject.contains(BigInteger.ZERO));
+        assertFalse(subject.contains(BigInteger.valueOf(43)));
+        assertFalse(subject.contains(BigInteger.valueOf(-42)));
+        assertFalse(subject.contains(LARGE_SERIAL.add(BigInteger.ONE)));
+    }
+
+    @Test
+    public void shouldKeepManySerialsSorted() {
+        BigInteger[] serials = new BigInteger[1000];
+        for (int i = 0; i < serials.length; ++i) {
+            serials[i] = BigInteger.valueOf(2L * (serials.length - i));
+        }
+        RevokedSerialIndex subject = RevokedSerialIndex.of(Arrays.asList(serials));
+
+        for (int i = 1; i <= 2 * serials.length; ++i) {
+            assertEquals(String.valueOf(i), i % 2 == 0, subject.contains(BigInteger.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutSerials() {
+        RevokedSerialIndex subject = RevokedSerialIndex.of(Collections.emptyList());
+
+        assertSame(RevokedSerialIndex.EMPTY, subject);
+        assertFalse(subject.contains(BigInteger.ONE));
+        assertFalse(subject.contains(LARGE_SERIAL));
+    }
+}
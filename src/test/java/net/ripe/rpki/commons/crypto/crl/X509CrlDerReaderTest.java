@@ -0,0 +1,141 @@
+package net.ripe.rpki.commons.crypto.crl;
+
+import com.google.common.io.Files;
+import net.ripe.rpki.commons.crypto.util.JcaFactories;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
+import net.ripe.rpki.commons.util.UTC;
+import org.bouncycastle.asn1.x509.Extension;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
+import static org.junit.Assert.*;
+
+public class X509CrlDerReaderTest {
+
+    private static final File PATH_TO_BBN_OBJECTS = new File("src/test/resources/conformance");
+
+    @Test
+    public void shouldReadHeaderFieldsOfCrlWithoutEntries() {
+        X509Crl crl = X509CrlTest.createCrl();
+
+        X509CrlDerReader subject = new X509CrlDerReader(crl.getEncoded());
+
+        assertMatchesJca(crl.getCrl(), subject);
+        assertEquals(BigInteger.TEN, subject.getNumber());
+        assertFalse(subject.getRevokedSerialNumbers().iterator().hasNext());
+        assertFalse(subject.getRevokedCertificates().iterator().hasNext());
+    }
+
+    @Test
+    public void shouldReadRevokedCertificatesWhileIterating() {
+        X509Crl crl = X509CrlTest.getCrlBuilder()
+                .addEntry(BigInteger.ONE, UTC.dateTime().minusDays(2))
+                .addEntry(BigInteger.valueOf(1000), UTC.dateTime().minusDays(1))
+                .addEntry(BigInteger.ONE.shiftLeft(150).add(BigInteger.ONE), UTC.dateTime().minusHours(1))
+                .build(TEST_KEY_PAIR.getPrivate());
+
+        X509CrlDerReader subject = new X509CrlDerReader(crl.getEncoded());
+
+        assertMatchesJca(crl.getCrl(), subject);
+    }
+
+    @Test
+    public void shouldReadGeneralizedTimes() {
+        X509Crl crl = X509CrlTest.getCrlBuilder()
+                .withNextUpdateTime(new DateTime(2060, 1, 2, 3, 4, 5, DateTimeZone.UTC))
+                .addEntry(BigInteger.ONE, new DateTime(2055, 6, 7, 8, 9, 10, DateTimeZone.UTC))
+                .build(TEST_KEY_PAIR.getPrivate());
+
+        X509CrlDerReader subject = new X509CrlDerReader(crl.getEncoded());
+
+        assertMatchesJca(crl.getCrl(), subject);
+        assertEquals(new DateTime(2060, 1, 2, 3, 4, 5, DateTimeZone.UTC), subject.getNextUpdateTime());
+    }
+
+    @Test
+    public void shouldReadConformanceCrls() throws Exception {
+        for (String name : Arrays.asList("root/root.crl", "root/CRLNumberZero/goodCRLNumberZero.crl", "root/CRLNumberMax/goodCRLNumberMax.crl", "root/CRLEntrySerNumMax/goodCRLEntrySerNumMax.crl")) {
+            byte[] encoded = Files.toByteArray(new File(PATH_TO_BBN_OBJECTS, name));
+
+            assertMatchesJca(new X509Crl(encoded).getCrl(), new X509CrlDerReader(encoded));
+        }
+    }
+
+    @Test
+    public void shouldVerifySignatureLikeJca() throws Exception {
+        byte[] encoded = Files.toByteArray(new File(PATH_TO_BBN_OBJECTS, "root/root.crl"));
+        PublicKey rootKey;
+        try (ByteArrayInputStream in = new ByteArrayInputStream(Files.toByteArray(new File(PATH_TO_BBN_OBJECTS, "root.cer")))) {
+            rootKey = JcaFactories.x509CertificateFactory().generateCertificate(in).getPublicKey();
+        }
+
+        new X509CrlDerReader(encoded).verify(rootKey, DEFAULT_SIGNATURE_PROVIDER);
+        X509CrlTest.createCrl().getReader().verify(TEST_KEY_PAIR.getPublic(), DEFAULT_SIGNATURE_PROVIDER);
+    }
+
+    @Test(expected = SignatureException.class)
+    public void shouldRejectSignatureOfOtherKey() throws Exception {
+        X509CrlTest.createCrl().getReader().verify(SECOND_TEST_KEY_PAIR.getPublic(), DEFAULT_SIGNATURE_PROVIDER);
+    }
+
+    @Test
+    public void shouldRejectMalformedCrls() throws Exception {
+        byte[] encoded = X509CrlTest.createCrl().getEncoded();
+
+        assertRejected(new byte[0]);
+        assertRejected(Arrays.copyOf(encoded, encoded.length - 1));
+        assertRejected(Arrays.copyOf(encoded, 40));
+        assertRejected(Files.toByteArray(new File(PATH_TO_BBN_OBJECTS, "root/CRLVersion0/badCRLVersion0.crl")));
+        assertRejected(Files.toByteArray(new File(PATH_TO_BBN_OBJECTS, "root/CRLSigAlgInner/badCRLSigAlgInner.crl")));
+    }
+
+    private static void assertRejected(byte[] encoded) {
+        try {
+            new X509CrlDerReader(encoded);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertMatchesJca(X509CRL expected, X509CrlDerReader subject) {
+        assertEquals(expected.getIssuerX500Principal(), subject.getIssuer());
+        assertEquals(UTC.dateTime(expected.getThisUpdate()), subject.getThisUpdateTime());
+        assertEquals(expected.getNextUpdate() == null ? null : UTC.dateTime(expected.getNextUpdate()), subject.getNextUpdateTime());
+        assertEquals(expected.getSigAlgOID(), subject.getSignatureAlgorithm().getId());
+        assertArrayEquals(X509CertificateUtil.getAuthorityKeyIdentifier(expected), subject.getAuthorityKeyIdentifier());
+        assertEquals(expected.getExtensionValue(Extension.cRLNumber.getId()) == null, subject.getNumber() == null);
+
+        List<X509Crl.Entry> expectedEntries = new ArrayList<>();
+        List<BigInteger> expectedSerials = new ArrayList<>();
+        if (expected.getRevokedCertificates() != null) {
+            for (X509CRLEntry entry : expected.getRevokedCertificates()) {
+                expectedEntries.add(new X509Crl.Entry(entry));
+                expectedSerials.add(entry.getSerialNumber());
+            }
+        }
+        List<X509Crl.Entry> actualEntries = new ArrayList<>();
+        subject.getRevokedCertificates().forEach(actualEntries::add);
+        List<BigInteger> actualSerials = new ArrayList<>();
+        subject.getRevokedSerialNumbers().forEach(actualSerials::add);
+
+        // The JCA entries are a hash set, so compare without order.
+        assertEquals(expectedEntries.size(), actualEntries.size());
+        assertTrue(actualEntries.containsAll(expectedEntries));
+        assertEquals(expectedSerials.size(), actualSerials.size());
+        assertTrue(actualSerials.containsAll(expectedSerials));
+    }
+}
@@ -8,6 +8,7 @@ import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.ValidationString;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.joda.time.DateTime;
 import org.junit.Test;
 
@@ -15,6 +16,7 @@ import javax.security.auth.x500.X500Principal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.security.KeyPair;
+import java.security.SignatureException;
 
 import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
@@ -52,6 +54,23 @@ public class X509CrlTest {
         return builder.build(keyPair.getPrivate());
     }
 
+    @Test
+    public void shouldNotKeepJcaCrlOfParsedCrl() throws IllegalAccessException {
+        byte[] encoded = getCrlBuilder()
+                .addEntry(BigInteger.valueOf(42), UTC.dateTime().minusDays(1))
+                .build(TEST_KEY_PAIR.getPrivate())
+                .getEncoded();
+        ValidationResult result = ValidationResult.withLocation(ROOT_MANIFEST_CRL_LOCATION);
+
+        X509Crl subject = X509Crl.parseDerEncoded(encoded, result);
+
+        assertFalse(result.hasFailures());
+        assertNull(FieldUtils.readField(subject, "crl", true));
+        assertTrue(subject.isRevoked(BigInteger.valueOf(42)));
+        assertNull(FieldUtils.readField(subject, "crl", true));
+        assertEquals(1, subject.getCrl().getRevokedCertificates().size());
+    }
+
     @Test
     public void shouldHaveAuthorityKeyIdentifier() {
         X509Crl crl = createCrl();
@@ -96,4 +115,43 @@ public class X509CrlTest {
         X509Crl subject = createCrl();
         assertFalse(subject.isPastValidityTime());
     }
+
+    @Test
+    public void shouldVerifySignatureOncePerPublicKey() throws Exception {
+        byte[] encoded = createCrl().getEncoded().clone();
+        X509Crl subject = new X509Crl(encoded);
+
+        subject.verify(TEST_KEY_PAIR.getPublic());
+        // Corrupt the last signature byte: only a repeated signature check would notice.
+        encoded[encoded.length - 1] ^= 1;
+        subject.verify(TEST_KEY_PAIR.getPublic());
+
+        try {
+            new X509Crl(encoded.clone()).verify(TEST_KEY_PAIR.getPublic());
+            fail("corrupted signature must not verify");
+        } catch (SignatureException expected) {
+        }
+    }
+
+    @Test(expected = SignatureException.class)
+    public void shouldStillRejectOtherPublicKeyAfterSuccessfulVerification() throws Exception {
+        X509Crl subject = createCrl();
+        subject.verify(TEST_KEY_PAIR.getPublic());
+
+        subject.verify(SECOND_TEST_KEY_PAIR.getPublic());
+    }
+
+    @Test
+    public void shouldCheckRevocationBySerialAndIssuer() {
+        X509Crl subject = getCrlBuilder()
+                .addEntry(BigInteger.valueOf(42), UTC.dateTime().minusDays(1))
+                .build(TEST_KEY_PAIR.getPrivate());
+
+        assertTrue(subject.isRevoked(BigInteger.valueOf(42)));
+        assertFalse(subject.isRevoked(BigInteger.valueOf(43)));
+
+        assertTrue(subject.isRevoked(createSelfSignedEeCertificateBuilder().withIssuerDN(subject.getIssuer()).withSerial(BigInteger.valueOf(42)).build().getCertificate()));
+        assertFalse(subject.isRevoked(createSelfSignedEeCertificateBuilder().withIssuerDN(subject.getIssuer()).withSerial(BigInteger.valueOf(43)).build().getCertificate()));
+        assertFalse("other issuer", subject.isRevoked(createSelfSignedEeCertificateBuilder().withIssuerDN(new X500Principal("CN=other")).withSerial(BigInteger.valueOf(42)).build().getCertificate()));
+    }
 }
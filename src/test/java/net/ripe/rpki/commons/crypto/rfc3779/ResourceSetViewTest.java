@@ -0,0 +1,141 @@
+package net.ripe.rpki.commons.crypto.rfc3779;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpAddress;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.IpResourceRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ResourceSetViewTest {
+
+    private static final IpResourceSet RESOURCES = IpResourceSet.parse("AS64496-AS64511, 10.0.0.0/16, 10.2.0.0/16, 192.168.0.0/24, 2001:db8::/32");
+
+    private final ResourceSetView subject = ResourceSetView.of(RESOURCES);
+
+    @Test
+    public void shouldContainResources() {
+        assertTrue(subject.contains(IpResource.parse("AS64500")));
+        assertTrue(subject.contains(IpResource.parse("10.0.1.0/24")));
+        assertTrue(subject.contains(IpResource.parse("10.2.0.0/16")));
+        assertTrue(subject.contains(IpResource.parse("2001:db8:1::/48")));
+        assertFalse(subject.contains(IpResource.parse("AS64512")));
+        assertFalse(subject.contains(IpResource.parse("10.0.0.0/14")));
+        assertFalse(subject.contains(IpResource.parse("10.1.0.0/24")));
+        assertFalse(subject.contains(IpResource.parse("2001:db9::/32")));
+        assertFalse(ResourceSetView.of(new IpResourceSet()).contains(IpResource.parse("10.0.0.0/8")));
+    }
+
+    @Test
+    public void shouldContainSortedAndUnsortedResources() {
+        List<IpResource> sorted = Arrays.asList(IpResource.parse("10.0.0.0/24"), IpResource.parse("10.0.255.0/24"), IpResource.parse("10.2.0.0/24"), IpResource.parse("2001:db8::/48"));
+        List<IpResource> unsorted = new ArrayList<>(sorted);
+        Collections.reverse(unsorted);
+
+        assertTrue(subject.containsAll(sorted));
+        assertTrue(subject.containsAll(unsorted));
+        assertTrue(subject.containsAll(Collections.emptyList()));
+        assertTrue(subject.contains(RESOURCES));
+        assertFalse(subject.containsAll(Arrays.asList(IpResource.parse("10.0.0.0/24"), IpResource.parse("10.1.0.0/24"))));
+        assertFalse(subject.containsAll(Arrays.asList(IpResource.parse("10.2.0.0/24"), IpResource.parse("10.0.0.0/15"))));
+    }
+
+    @Test
+    public void shouldBeImmutableView() {
+        IpResourceSet resources = new IpResourceSet(RESOURCES);
+        ResourceSetView view = ResourceSetView.of(resources);
+        resources.removeAll(RESOURCES);
+
+        assertEquals(RESOURCES, view.toIpResourceSet());
+        assertEquals(RESOURCES.toString(), view.toString());
+        assertEquals(5, view.size());
+        assertTrue(view.containsType(IpResourceType.IPv6));
+        assertFalse(ResourceSetView.of(IpResourceSet.parse("10.0.0.0/8")).containsType(IpResourceType.ASN));
+        Iterator<IpResource> iterator = view.iterator();
+        iterator.next();
+        try {
+            iterator.remove();
+            fail("removal supported");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void shouldContainLikeIpResourceSetForRandomResources() {
+        Random random = new Random(20);
+        for (int i = 0; i < 200; ++i) {
+            IpResourceSet resources = new IpResourceSet();
+            for (int j = random.nextInt(20); j >= 0; --j) {
+                resources.add(randomResource(random));
+            }
+            ResourceSetView view = ResourceSetView.of(resources);
+
+            for (int j = 0; j < 50; ++j) {
+                List<IpResource> that = new ArrayList<>();
+                for (int k = random.nextInt(5); k >= 0; --k) {
+                    IpResource resource = randomResource(random);
+                    // Mostly resources that are inside the set, to also cover the containing case.
+                    if (random.nextInt(4) > 0) {
+                        resource = randomSubResource(random, randomElement(random, resources));
+                    }
+                    that.add(resource);
+                }
+                if (random.nextBoolean()) {
+                    Collections.sort(that);
+                }
+                String message = resources + " contains " + that;
+                assertEquals(message, resources.contains(new IpResourceSet(that)), view.containsAll(that));
+                assertEquals(message, resources.contains(that.get(0)), view.contains(that.get(0)));
+            }
+        }
+    }
+
+    private static IpResource randomResource(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                long asn = random.nextInt(1000);
+                return IpResourceRange.range(new Asn(asn), new Asn(asn + random.nextInt(100)));
+            case 1:
+                return prefix(new Ipv4Address((long) random.nextInt(1 << 16) << 16), 8 + random.nextInt(17));
+            default:
+                return prefix(new Ipv6Address(BigInteger.valueOf(random.nextInt(1 << 16)).shiftLeft(112)), 8 + random.nextInt(41));
+        }
+    }
+
+    private static IpResource randomSubResource(Random random, IpResource resource) {
+        if (resource.getType() == IpResourceType.ASN) {
+            long start = ((Asn) resource.getStart()).longValue();
+            long end = ((Asn) resource.getEnd()).longValue();
+            long first = start + (long) (random.nextDouble() * (end - start + 1));
+            return IpResourceRange.range(new Asn(first), new Asn(first + (long) (random.nextDouble() * (end - first + 1))));
+        }
+        IpAddress start = (IpAddress) resource.getStart();
+        IpAddress end = (IpAddress) resource.getEnd();
+        int length = start.getCommonPrefixLength(end) + random.nextInt(8);
+        return prefix(start, Math.min(length, resource.getType().getBitSize()));
+    }
+
+    private static IpRange prefix(IpAddress address, int length) {
+        return IpRange.prefix(address.lowerBoundForPrefix(length), length);
+    }
+
+    private static IpResource randomElement(Random random, IpResourceSet resources) {
+        List<IpResource> list = new ArrayList<>();
+        resources.forEach(list::add);
+        return list.get(random.nextInt(list.size()));
+    }
+}
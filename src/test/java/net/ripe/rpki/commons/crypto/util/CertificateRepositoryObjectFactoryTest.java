@@ -1,6 +1,8 @@
 package net.ripe.rpki.commons.crypto.util;
 
+import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.ValidityPeriod;
 import net.ripe.rpki.commons.crypto.UnknownCertificateRepositoryObject;
 import net.ripe.rpki.commons.crypto.cms.aspa.AspaCms;
 import net.ripe.rpki.commons.crypto.cms.aspa.AspaCmsTest;
@@ -10,17 +12,28 @@ import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
 import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.ValidationCheck;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.ValidationStatus;
+import org.joda.time.DateTime;
 import org.junit.Test;
 
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory.createCertificateRepositoryObject;
+import static net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory.createCertificateRepositoryObjects;
 import static net.ripe.rpki.commons.validation.ValidationStatus.ERROR;
 import static net.ripe.rpki.commons.validation.ValidationString.*;
 import static org.junit.Assert.*;
@@ -198,4 +211,83 @@ public class CertificateRepositoryObjectFactoryTest {
         assertFalse("" + validationResult.getAllValidationChecksForCurrentLocation(), validationResult.hasNoFailuresOrWarnings());
         assertTrue(validationResult.getResultForCurrentLocation(KNOWN_OBJECT_TYPE).isOk());
     }
+
+    @Test
+    public void shouldParseBatchInParallelLikeOneByOne() {
+        Map<String, byte[]> encodedObjects = new LinkedHashMap<>();
+        encodedObjects.put("roa.roa", RoaCmsTest.getRoaCms().getEncoded());
+        encodedObjects.put("manifest.mft", ManifestCmsTest.getRootManifestCms().getEncoded());
+        encodedObjects.put("certificate.cer", X509ResourceCertificateTest.createSelfSignedCaResourceCertificate().getEncoded());
+        encodedObjects.put("crl.crl", X509CrlTest.createCrl().getEncoded());
+        encodedObjects.put("malformed.roa", new byte[]{0, 1});
+        encodedObjects.put("file.unknown", new byte[]{0, 1});
+        byte[] encodedAspa = AspaCmsTest.createAspa().getEncoded();
+        for (int i = 0; i < 100; ++i) {
+            encodedObjects.put("aspa-" + i + ".asa", encodedAspa);
+        }
+
+        ValidationResult expected = ValidationResult.withLocation("batch");
+        Map<String, CertificateRepositoryObject> expectedObjects = new LinkedHashMap<>();
+        encodedObjects.forEach((name, encoded) -> expectedObjects.put(name, createCertificateRepositoryObject(encoded, expected.setLocation(new ValidationLocation(name)))));
+
+        ValidationResult validationResult = ValidationResult.withLocation("batch");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, CertificateRepositoryObject> objects = createCertificateRepositoryObjects(encodedObjects, validationResult, pool);
+
+            assertArrayEquals(encodedObjects.keySet().toArray(), objects.keySet().toArray());
+            expectedObjects.forEach((name, object) -> {
+                assertEquals(name, object == null ? null : object.getClass(), objects.get(name) == null ? null : objects.get(name).getClass());
+                assertArrayEquals(name, object == null ? null : object.getEncoded(), objects.get(name) == null ? null : objects.get(name).getEncoded());
+            });
+        } finally {
+            pool.shutdown();
+        }
+        assertNull(expectedObjects.get("malformed.roa"));
+        assertEquals(new ValidationLocation("batch"), validationResult.getCurrentLocation());
+        assertEquals(expected.getValidatedLocations(), validationResult.getValidatedLocations());
+        for (ValidationLocation location : expected.getValidatedLocations()) {
+            assertEquals(expected.getAllValidationChecksForLocation(location), validationResult.getAllValidationChecksForLocation(location));
+        }
+    }
+
+    @Test
+    public void shouldParseBatchWithSettingsOfValidationResult() {
+        Map<String, byte[]> encodedObjects = new LinkedHashMap<>();
+        encodedObjects.put("roa.roa", RoaCmsTest.getRoaCms().getEncoded());
+        encodedObjects.put("malformed.roa", new byte[]{0, 1});
+        ValidationResult validationResult = ValidationResult.withLocation("batch").withoutStoringPassingChecks();
+
+        createCertificateRepositoryObjects(encodedObjects, validationResult, Runnable::run);
+
+        assertEquals(0, validationResult.getAllValidationChecksForLocation(new ValidationLocation("roa.roa")).stream().filter(check -> check.getStatus() == ValidationStatus.PASSED).count());
+        assertTrue(validationResult.hasFailureForLocation(new ValidationLocation("malformed.roa")));
+    }
+
+    @Test
+    public void shouldParseBatchInVerdictOnlyModeOfValidationResult() throws CertificateEncodingException {
+        X509CertificateBuilderHelper builder = new X509CertificateBuilderHelper();
+        builder.withSubjectDN(new X500Principal("CN=zz.subject")).withIssuerDN(new X500Principal("CN=zz.issuer"));
+        builder.withSerial(BigInteger.ONE);
+        builder.withPublicKey(KeyPairFactoryTest.TEST_KEY_PAIR.getPublic());
+        builder.withSigningKeyPair(KeyPairFactoryTest.SECOND_TEST_KEY_PAIR);
+        DateTime now = UTC.dateTime();
+        builder.withValidityPeriod(new ValidityPeriod(now, now.plusYears(1)));
+        builder.withResources(IpResourceSet.ALL_PRIVATE_USE_RESOURCES);
+        builder.withSignatureAlgorithm("MD5withRSA");
+        Map<String, byte[]> encodedObjects = new LinkedHashMap<>();
+        encodedObjects.put("md5.cer", builder.generateCertificate().getEncoded());
+        encodedObjects.put("roa.roa", RoaCmsTest.getRoaCms().getEncoded());
+
+        ValidationResult full = ValidationResult.withLocation("batch");
+        createCertificateRepositoryObjects(encodedObjects, full, Runnable::run);
+        ValidationResult validationResult = ValidationResult.withLocation("batch").withVerdictOnly();
+        Map<String, CertificateRepositoryObject> objects = createCertificateRepositoryObjects(encodedObjects, validationResult, Runnable::run);
+
+        ValidationLocation location = new ValidationLocation("md5.cer");
+        assertTrue(full.getFailures(location).size() > 1);
+        assertEquals(Collections.singletonList(new ValidationCheck(ERROR, CERTIFICATE_SIGNATURE_ALGORITHM)), validationResult.getAllValidationChecksForLocation(location));
+        assertFalse(validationResult.hasFailureForLocation(new ValidationLocation("roa.roa")));
+        assertTrue(objects.get("roa.roa") instanceof RoaCms);
+    }
 }
@@ -0,0 +1,36 @@
+package net.ripe.rpki.commons.crypto.util;
+
+import org.junit.Test;
+
+import java.security.KeyFactory;
+import java.security.cert.CertificateFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class JcaFactoriesTest {
+
+    @Test
+    public void shouldReuseFactoriesWithinThread() {
+        assertSame(JcaFactories.x509CertificateFactory(), JcaFactories.x509CertificateFactory());
+        assertSame(JcaFactories.rsaKeyFactory(), JcaFactories.rsaKeyFactory());
+
+        assertEquals("X.509", JcaFactories.x509CertificateFactory().getType());
+        assertEquals(KeyPairFactory.ALGORITHM, JcaFactories.rsaKeyFactory().getAlgorithm());
+    }
+
+    @Test
+    public void shouldNotShareFactoriesBetweenThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CertificateFactory otherCertificateFactory = executor.submit(JcaFactories::x509CertificateFactory).get();
+            KeyFactory otherKeyFactory = executor.submit(JcaFactories::rsaKeyFactory).get();
+
+            assertNotSame(JcaFactories.x509CertificateFactory(), otherCertificateFactory);
+            assertNotSame(JcaFactories.rsaKeyFactory(), otherKeyFactory);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
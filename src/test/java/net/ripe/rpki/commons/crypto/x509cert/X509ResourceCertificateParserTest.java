@@ -20,6 +20,7 @@ import java.math.BigInteger;
 import java.net.URI;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
 
 import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelperTest.CAB_BASELINE_REQUIREMENTS_POLICY;
@@ -102,6 +103,29 @@ public class X509ResourceCertificateParserTest {
         assertFalse(subject.getValidationResult().getResult(new ValidationLocation("certificate"), ValidationString.CERTIFICATE_SIGNATURE_ALGORITHM).isOk());
     }
 
+    @Test
+    public void shouldSkipRemainingChecksAfterFirstErrorInVerdictOnlyMode() throws CertificateEncodingException {
+        X509CertificateBuilderHelper builder = new X509CertificateBuilderHelper();
+        builder.withSubjectDN(new X500Principal("CN=zz.subject")).withIssuerDN(new X500Principal("CN=zz.issuer"));
+        builder.withSerial(BigInteger.ONE);
+        builder.withPublicKey(TEST_KEY_PAIR.getPublic());
+        builder.withSigningKeyPair(SECOND_TEST_KEY_PAIR);
+        DateTime now = UTC.dateTime();
+        builder.withValidityPeriod(new ValidityPeriod(now, new DateTime(now.getYear() + 1, 1, 1, 0, 0, 0, 0, DateTimeZone.UTC)));
+        builder.withResources(IpResourceSet.ALL_PRIVATE_USE_RESOURCES);
+        builder.withSignatureAlgorithm("MD5withRSA");
+        X509Certificate certificate = builder.generateCertificate();
+
+        ValidationResult result = ValidationResult.withLocation("certificate").withVerdictOnly();
+        subject.parse(result, certificate.getEncoded());
+
+        assertTrue(result.isVerdictReached());
+        assertEquals(
+                Collections.singletonList(new ValidationCheck(ValidationStatus.ERROR, CERTIFICATE_SIGNATURE_ALGORITHM)),
+                result.getAllValidationChecksForCurrentLocation()
+        );
+    }
+
     @Test
     public void should_validate_issuer_dn() {
         assertTrue("serialNumber optional", validateIssuerDn("CN=test"));
@@ -138,6 +138,15 @@ public class X509ResourceCertificateTest {
         assertEquals(TEST_RESOURCE_SET, createSelfSignedCaResourceCertificate(TEST_RESOURCE_SET).getResources());
     }
 
+    @Test
+    public void shouldShareResourcesView() {
+        X509ResourceCertificate subject = createSelfSignedCaResourceCertificate(TEST_RESOURCE_SET);
+
+        assertSame(subject.getResourcesView(), subject.getResourcesView());
+        assertEquals(TEST_RESOURCE_SET, subject.getResourcesView().toIpResourceSet());
+        assertEquals(TEST_RESOURCE_SET.toString(), subject.getResourcesView().toString());
+    }
+
     @Test
     public void shouldSupportResourceInheritance() {
         X509ResourceCertificate inherited = createSelfSignedCaResourceCertificateBuilder().withResources(new IpResourceSet()).withInheritedResourceTypes(EnumSet.allOf(IpResourceType.class)).build();
@@ -0,0 +1,84 @@
+package net.ripe.rpki.commons.interop;
+
+import com.google.common.io.Files;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectParser;
+import net.ripe.rpki.commons.crypto.cms.aspa.AspaCmsParser;
+import net.ripe.rpki.commons.crypto.cms.ghostbuster.GhostbustersCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.validation.ValidationCheck;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parses every signed object in the BBN conformance suite and compares the resulting errors and warnings
+ * against a recorded snapshot, so changes to the CMS decoding in {@link RpkiSignedObjectParser} cannot
+ * silently change the RFC 6488 verdicts.
+ */
+public class BBNSignedObjectConformanceResultsTest {
+
+    private static final File PATH_TO_BBN_OBJECTS = new File("src/test/resources/conformance/");
+
+    private static final File EXPECTED_RESULTS = new File("src/test/resources/interop/misc-objects/conformance-signed-object-results.txt");
+
+    @Test
+    public void shouldProduceSameResultsForConformanceSignedObjects() throws IOException {
+        List<String> expected = Files.readLines(EXPECTED_RESULTS, StandardCharsets.UTF_8);
+
+        assertThat(describeAll()).containsExactlyElementsOf(expected);
+    }
+
+    static List<String> describeAll() throws IOException {
+        List<File> files = StreamSupport.stream(Files.fileTraverser().depthFirstPreOrder(PATH_TO_BBN_OBJECTS).spliterator(), false)
+                .filter(file -> parserFor(file) != null)
+                .sorted()
+                .collect(Collectors.toList());
+
+        List<String> lines = new ArrayList<>();
+        for (File file : files) {
+            lines.add(describe(file));
+        }
+        return lines;
+    }
+
+    private static String describe(File file) throws IOException {
+        ValidationResult result = ValidationResult.withLocation(file.getName());
+        parserFor(file).parse(result, Files.toByteArray(file));
+
+        List<String> checks = new ArrayList<>();
+        for (ValidationCheck check : result.getFailuresForAllLocations()) {
+            checks.add(check.getStatus() + " " + check.getKey());
+        }
+        for (ValidationCheck check : result.getWarnings()) {
+            checks.add(check.getStatus() + " " + check.getKey());
+        }
+        checks.sort(String::compareTo);
+
+        String path = PATH_TO_BBN_OBJECTS.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+        return path + ": " + String.join(", ", checks);
+    }
+
+    private static RpkiSignedObjectParser parserFor(File file) {
+        String name = file.getName();
+        if (name.endsWith(".roa")) {
+            return new RoaCmsParser();
+        } else if (name.endsWith(".mft")) {
+            return new ManifestCmsParser();
+        } else if (name.endsWith(".gbr")) {
+            return new GhostbustersCmsParser();
+        } else if (name.endsWith(".asa")) {
+            return new AspaCmsParser();
+        }
+        return null;
+    }
+}
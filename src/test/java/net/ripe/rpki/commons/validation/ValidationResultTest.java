@@ -1,6 +1,7 @@
 package net.ripe.rpki.commons.validation;
 
 import net.ripe.rpki.commons.FixedDateRule;
+import org.apache.commons.lang3.SerializationUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Rule;
@@ -195,4 +196,141 @@ public class ValidationResultTest {
         assertFalse(result.isStoringPassingChecks());
         assertEquals(0, result.getAllValidationChecksForCurrentLocation().size());
     }
+
+    @Test
+    public void should_present_compactly_stored_checks_through_accessors() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        assertTrue(result.isCompactStorage());
+        result.pass("passed", "dropped");
+        result.rejectIfFalse(true, "passed2");
+        result.warn("warning", "kept");
+        result.error("error", "kept");
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, "error", "kept"),
+                new ValidationCheck(ValidationStatus.WARNING, "warning", "kept"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed2")
+        ), result.getAllValidationChecksForCurrentLocation());
+        assertEquals(1, result.getFailures(FIRST_LOCATION).size());
+        assertEquals(1, result.getWarnings().size());
+        assertEquals(ValidationStatus.PASSED, result.getResultForCurrentLocation("passed2").getStatus());
+    }
+
+    @Test
+    public void should_compact_existing_passed_checks_when_switching_to_compact_storage() {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+        result.pass("passed", "param");
+        result.withCompactStorage();
+        result.pass("passed");
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "passed"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed")
+        ), result.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_add_all_checks_between_compact_and_regular_results() {
+        ValidationResult compact = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        compact.pass("compact");
+        ValidationResult regular = ValidationResult.withLocation(FIRST_LOCATION);
+        regular.pass("regular", "param");
+
+        regular.addAll(compact);
+        compact.addAll(ValidationResult.withLocation(FIRST_LOCATION).pass("other", "param"));
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "regular", "param"),
+                new ValidationCheck(ValidationStatus.PASSED, "compact")
+        ), regular.getAllValidationChecksForCurrentLocation());
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "compact"),
+                new ValidationCheck(ValidationStatus.PASSED, "other")
+        ), compact.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_serialize_compactly_stored_checks() throws Exception {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        result.pass("passed");
+        result.error("error", "param");
+
+        ValidationResult copy = SerializationUtils.clone(result);
+
+        assertEquals(result.getAllValidationChecksForCurrentLocation(), copy.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_only_record_failures_without_params_in_verdict_only_mode() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withVerdictOnly();
+        assertTrue(result.isVerdictOnly());
+        assertFalse(result.isStoringPassingChecks());
+
+        result.rejectIfFalse(true, "passed", "param");
+        result.warnIfTrue(true, "warning", "param");
+        assertFalse(result.isVerdictReached());
+
+        result.rejectIfFalse(false, "error", "param");
+        assertTrue(result.isVerdictReached());
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, "error"),
+                new ValidationCheck(ValidationStatus.WARNING, "warning")
+        ), result.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_not_format_object_params_in_verdict_only_mode() {
+        Object unformattable = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("params should not be formatted");
+            }
+        };
+        result = ValidationResult.withLocation(FIRST_LOCATION).withVerdictOnly();
+
+        result.rejectIfTrue(false, "passed", unformattable);
+        result.rejectIfTrue(true, "error", unformattable);
+        result.warn("warning", unformattable);
+
+        assertTrue(result.isVerdictReached());
+    }
+
+    @Test
+    public void should_format_object_params_when_stored() {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+
+        result.rejectIfFalse(true, "passed", NOW);
+        result.error("error", NOW, 1);
+
+        assertArrayEquals(new String[]{NOW.toString()}, result.getResultForCurrentLocation("passed").getParams());
+        assertArrayEquals(new String[]{NOW.toString(), "1"}, result.getResultForCurrentLocation("error").getParams());
+        assertFalse("verdict is only reached in verdict-only mode", result.isVerdictReached());
+    }
+
+    @Test
+    public void should_reach_verdict_when_adding_failures_in_verdict_only_mode() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withVerdictOnly();
+        result.addAll(ValidationResult.withLocation(SECOND_LOCATION).error("error"));
+
+        assertFalse(result.isVerdictReached());
+        result.setLocation(SECOND_LOCATION);
+        assertTrue(result.isVerdictReached());
+    }
+
+    @Test
+    public void should_reach_verdict_per_location_in_verdict_only_mode() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withVerdictOnly();
+        result.error("error");
+        assertTrue(result.isVerdictReached());
+
+        result.setLocation(SECOND_LOCATION);
+        assertFalse(result.isVerdictReached());
+        result.rejectForLocation(SECOND_LOCATION, "error");
+        assertTrue(result.isVerdictReached());
+
+        result.setLocation(FIRST_LOCATION);
+        assertTrue(result.isVerdictReached());
+    }
 }
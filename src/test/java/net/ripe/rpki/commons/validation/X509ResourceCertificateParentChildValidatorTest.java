@@ -146,6 +146,22 @@ public class X509ResourceCertificateParentChildValidatorTest {
 
     }
 
+    @Test
+    public void shouldValidateEveryCertificateWithSharedVerdictOnlyResult() {
+        result = ValidationResult.withLocation("n/a").withVerdictOnly();
+        X509ResourceCertificate invalidSignature = createChildCertificateBuilder().withSigningKeyPair(SECOND_CHILD_KEY_PAIR).build();
+        X509ResourceCertificate expired = createChildCertificateBuilder().withValidityPeriod(EXPIRED_VALIDITY_PERIOD).build();
+
+        X509ResourceCertificateParentChildValidator validator = new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources());
+        validator.validate("invalid-signature", invalidSignature);
+        validator.validate("valid", child);
+        validator.validate("expired", expired);
+
+        assertEquals(ValidationString.SIGNATURE_VALID, result.getFailures(new ValidationLocation("invalid-signature")).get(0).getKey());
+        assertFalse(result.hasFailureForLocation(new ValidationLocation("valid")));
+        assertEquals(ValidationString.NOT_VALID_AFTER, result.getFailures(new ValidationLocation("expired")).get(0).getKey());
+    }
+
     @Test
     public void shouldRejectInvalidIssuer() {
         child = createChildCertificateBuilder().withIssuerDN(SECOND_CHILD_CERTIFICATE_NAME).build();
@@ -0,0 +1,143 @@
+package net.ripe.rpki.commons.validation.aspa;
+
+import com.google.common.collect.ImmutableSortedSet;
+import net.ripe.ipresource.Asn;
+import net.ripe.rpki.commons.crypto.cms.aspa.AspaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.aspa.ProviderAS;
+import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static net.ripe.rpki.commons.validation.aspa.AsPathValidityState.*;
+import static org.junit.Assert.*;
+
+public class AspaVerifierTest {
+
+    // AS1 -> AS2 -> AS3 is a chain of customers and providers, AS3 has no providers, AS7 is an IPv6 only
+    // provider of AS1 and AS10 is another customer of AS3. AS5 and AS6 have no ASPA.
+    private final AspaVerifier subject = AspaVerifier.of(providers(
+            1, Arrays.asList(provider(2), new ProviderAS(new Asn(7), Optional.of(AddressFamily.IPV6))),
+            2, Arrays.asList(provider(3)),
+            3, Arrays.asList(provider(0)),
+            10, Arrays.asList(provider(3))));
+
+    @Test
+    public void shouldBuildIndexFromAspas() {
+        AspaVerifier verifier = AspaVerifier.fromAspas(Arrays.asList(
+                AspaCmsTest.createAspa(new Asn(1), ImmutableSortedSet.of(provider(2))),
+                AspaCmsTest.createAspa(new Asn(1), ImmutableSortedSet.of(provider(4))),
+                AspaCmsTest.createAspa(new Asn(4294967295L), ImmutableSortedSet.of(provider(4294967294L)))));
+
+        assertEquals(2, verifier.size());
+        assertEquals("providers of both ASPAs", VALID, verifier.verifyUpstream(new int[]{2, 1}, AddressFamily.IPV4));
+        assertEquals("providers of both ASPAs", VALID, verifier.verifyUpstream(new int[]{4, 1}, AddressFamily.IPV4));
+        assertEquals(INVALID, verifier.verifyUpstream(new int[]{5, 1}, AddressFamily.IPV4));
+        assertEquals(VALID, verifier.verifyUpstream(new int[]{(int) 4294967294L, (int) 4294967295L}, AddressFamily.IPV4));
+    }
+
+    @Test
+    public void shouldVerifyUpstreamPaths() {
+        assertEquals(VALID, subject.verifyUpstream(new int[]{3, 2, 1}, AddressFamily.IPV4));
+        assertEquals(VALID, subject.verifyUpstream(new int[]{3, 3, 2, 1, 1}, AddressFamily.IPV4));
+        assertEquals(VALID, subject.verifyUpstream(new int[]{1}, AddressFamily.IPV4));
+        assertEquals(INVALID, subject.verifyUpstream(new int[0], AddressFamily.IPV4));
+        assertEquals("AS4 is not a provider of AS2", INVALID, subject.verifyUpstream(new int[]{4, 2, 1}, AddressFamily.IPV4));
+        assertEquals("AS3 has no providers", INVALID, subject.verifyUpstream(new int[]{10, 3, 2, 1}, AddressFamily.IPV4));
+        assertEquals("AS5 has no ASPA", UNKNOWN, subject.verifyUpstream(new int[]{6, 5}, AddressFamily.IPV4));
+        assertEquals("origin AS5 has no ASPA", UNKNOWN, subject.verifyUpstream(new int[]{3, 2, 1, 5}, AddressFamily.IPV4));
+        assertEquals(INVALID, subject.verifyUpstream(new int[]{5, 4, 2, 1}, AddressFamily.IPV4));
+    }
+
+    @Test
+    public void shouldLimitProvidersToAddressFamily() {
+        assertEquals(INVALID, subject.verifyUpstream(new int[]{7, 1}, AddressFamily.IPV4));
+        assertEquals(VALID, subject.verifyUpstream(new int[]{7, 1}, AddressFamily.IPV6));
+        assertEquals(VALID, subject.verifyUpstream(new int[]{3, 2, 1}, AddressFamily.IPV6));
+    }
+
+    @Test
+    public void shouldVerifyDownstreamPaths() {
+        assertEquals("up to AS3 and down to AS10", VALID, subject.verifyDownstream(new int[]{10, 3, 2, 1}, AddressFamily.IPV4));
+        assertEquals(VALID, subject.verifyDownstream(new int[]{1, 2, 3, 10}, AddressFamily.IPV4));
+        assertEquals(VALID, subject.verifyDownstream(new int[]{5, 6}, AddressFamily.IPV4));
+        assertEquals(INVALID, subject.verifyDownstream(new int[0], AddressFamily.IPV4));
+        assertEquals("one lateral peering between the ramps", VALID, subject.verifyDownstream(new int[]{10, 3, 5}, AddressFamily.IPV4));
+        assertEquals("AS5 may be a provider of AS1", UNKNOWN, subject.verifyDownstream(new int[]{5, 1, 2, 3, 10}, AddressFamily.IPV4));
+        assertEquals("valley: AS1 to AS5 and AS2 to AS5 both leak", INVALID, subject.verifyDownstream(new int[]{2, 5, 1}, AddressFamily.IPV4));
+        assertEquals(INVALID, subject.verifyDownstream(new int[]{2, 2, 5, 5, 1}, AddressFamily.IPV4));
+    }
+
+    @Test
+    public void shouldVerifyInBulkInInputOrder() {
+        Random random = new Random(16);
+        List<int[]> paths = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            int[] path = new int[random.nextInt(6)];
+            for (int j = 0; j < path.length; ++j) {
+                path[j] = random.nextInt(12);
+            }
+            paths.add(path);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<AsPathValidityState> upstream = subject.verifyUpstream(paths, AddressFamily.IPV4, pool);
+            List<AsPathValidityState> downstream = subject.verifyDownstream(paths, AddressFamily.IPV4, pool);
+            for (int i = 0; i < paths.size(); ++i) {
+                assertEquals(subject.verifyUpstream(paths.get(i), AddressFamily.IPV4), upstream.get(i));
+                assertEquals(subject.verifyDownstream(paths.get(i), AddressFamily.IPV4), downstream.get(i));
+            }
+            assertTrue(upstream.containsAll(Arrays.asList(AsPathValidityState.values())));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldIgnorePrependedAsns() {
+        Random random = new Random(17);
+        for (int i = 0; i < 10000; ++i) {
+            int[] path = new int[random.nextInt(6)];
+            int[] prepended = new int[3 * path.length];
+            int length = 0;
+            for (int j = 0; j < path.length; ++j) {
+                do {
+                    path[j] = random.nextInt(12);
+                } while (j > 0 && path[j] == path[j - 1]);
+                for (int k = random.nextInt(3); k >= 0; --k) {
+                    prepended[length++] = path[j];
+                }
+            }
+            prepended = Arrays.copyOf(prepended, length);
+
+            assertEquals(Arrays.toString(prepended), subject.verifyUpstream(path, AddressFamily.IPV4), subject.verifyUpstream(prepended, AddressFamily.IPV4));
+            assertEquals(Arrays.toString(prepended), subject.verifyDownstream(path, AddressFamily.IPV4), subject.verifyDownstream(prepended, AddressFamily.IPV4));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOtherAddressFamilies() {
+        subject.verifyUpstream(new int[]{1}, new AddressFamily(3));
+    }
+
+    private static ProviderAS provider(long asn) {
+        return new ProviderAS(new Asn(asn), Optional.empty());
+    }
+
+    private static Map<Asn, List<ProviderAS>> providers(Object... customerAndProviders) {
+        Map<Asn, List<ProviderAS>> result = new HashMap<>();
+        for (int i = 0; i < customerAndProviders.length; i += 2) {
+            @SuppressWarnings("unchecked")
+            List<ProviderAS> providers = (List<ProviderAS>) customerAndProviders[i + 1];
+            result.put(new Asn((Integer) customerAndProviders[i]), providers);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,351 @@
+package net.ripe.rpki.commons.validation.repository;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import net.ripe.rpki.commons.crypto.crl.X509CrlBuilder;
+import net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateBuilder;
+import net.ripe.rpki.commons.util.UTC;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationOptions;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
+import static net.ripe.rpki.commons.validation.ValidationString.*;
+import static org.junit.Assert.*;
+
+public class TopDownValidatorTest {
+
+    private static final URI TA_LOCATION = URI.create("rsync://rpki.example.net/ta/ta.cer");
+    private static final URI TA_REPOSITORY = URI.create("rsync://rpki.example.net/repository/");
+    private static final URI CHILD_REPOSITORY = URI.create("rsync://rpki.example.net/repository/child/");
+    private static final X500Principal TA_NAME = new X500Principal("CN=ta");
+    private static final X500Principal CHILD_NAME = new X500Principal("CN=child");
+    private static final KeyPair TA_KEY_PAIR = KeyPairFactoryTest.getKeyPair("ta");
+    private static final KeyPair CHILD_KEY_PAIR = KeyPairFactoryTest.getKeyPair("child");
+    private static final KeyPair EE_KEY_PAIR = KeyPairFactoryTest.getKeyPair("ee");
+    private static final IpResourceSet TA_RESOURCES = IpResourceSet.parse("10.0.0.0/8, AS64496-AS64511");
+    private static final IpResourceSet CHILD_RESOURCES = IpResourceSet.parse("10.1.0.0/16");
+
+    private final DateTime now = UTC.dateTime();
+    private final Map<URI, byte[]> store = new HashMap<>();
+    private BigInteger serial = BigInteger.ONE;
+    private X509ResourceCertificate trustAnchor;
+    private X509ResourceCertificate child;
+
+    @Before
+    public void setUp() {
+        trustAnchor = caCertificate(TA_NAME, TA_KEY_PAIR, TA_NAME, TA_KEY_PAIR, null, TA_REPOSITORY, TA_RESOURCES);
+        child = caCertificate(CHILD_NAME, CHILD_KEY_PAIR, TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, CHILD_REPOSITORY, CHILD_RESOURCES);
+
+        Map<String, byte[]> taFiles = new TreeMap<>();
+        taFiles.put("child.cer", child.getEncoded());
+        publish(TA_REPOSITORY, TA_NAME, TA_KEY_PAIR, taFiles);
+
+        Map<String, byte[]> childFiles = new TreeMap<>();
+        childFiles.put("route.roa", roa(CHILD_REPOSITORY.resolve("route.roa"), IpRange.parse("10.1.0.0/24")));
+        publish(CHILD_REPOSITORY, CHILD_NAME, CHILD_KEY_PAIR, childFiles);
+    }
+
+    @Test
+    public void shouldValidateObjectsTopDown() {
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = validate(ForkJoinPool.commonPool(), result);
+
+        assertFalse(result.getFailuresForAllLocations().toString(), result.hasFailures());
+        assertEquals(Arrays.asList(
+                TA_REPOSITORY.resolve("manifest.mft"),
+                TA_REPOSITORY.resolve("revoked.crl"),
+                TA_REPOSITORY.resolve("child.cer"),
+                CHILD_REPOSITORY.resolve("manifest.mft"),
+                CHILD_REPOSITORY.resolve("revoked.crl"),
+                CHILD_REPOSITORY.resolve("route.roa")
+        ), new ArrayList<>(objects.keySet()));
+        assertEquals(child, objects.get(TA_REPOSITORY.resolve("child.cer")));
+        assertEquals(new ValidationLocation(TA_LOCATION), result.getCurrentLocation());
+    }
+
+    @Test
+    public void shouldRejectObjectThatDoesNotMatchManifest() {
+        URI roaLocation = CHILD_REPOSITORY.resolve("route.roa");
+        store.put(roaLocation, roa(roaLocation, IpRange.parse("10.1.1.0/24")));
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = validate(ForkJoinPool.commonPool(), result);
+
+        assertFalse(objects.containsKey(roaLocation));
+        assertTrue(objects.containsKey(CHILD_REPOSITORY.resolve("manifest.mft")));
+        assertEquals(1, result.getFailuresForAllLocations().size());
+        assertNotNull(result.getResult(new ValidationLocation(roaLocation), VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES));
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(roaLocation)));
+    }
+
+    @Test
+    public void shouldIgnoreObjectsOfCaWithoutManifest() {
+        URI manifestLocation = CHILD_REPOSITORY.resolve("manifest.mft");
+        store.remove(manifestLocation);
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = validate(ForkJoinPool.commonPool(), result);
+
+        assertTrue(objects.containsKey(TA_REPOSITORY.resolve("child.cer")));
+        assertFalse(objects.containsKey(CHILD_REPOSITORY.resolve("route.roa")));
+        assertNotNull(result.getResult(new ValidationLocation(manifestLocation), VALIDATOR_READ_FILE));
+        assertNotNull(result.getResult(new ValidationLocation(TA_REPOSITORY.resolve("child.cer")), VALIDATOR_CA_SHOULD_HAVE_MANIFEST));
+        assertFalse(result.hasFailureForLocation(new ValidationLocation(CHILD_REPOSITORY.resolve("route.roa"))));
+    }
+
+    @Test
+    public void shouldStopAtCircularReference() {
+        X509ResourceCertificate loop = caCertificate(TA_NAME, TA_KEY_PAIR, CHILD_NAME, CHILD_KEY_PAIR, CHILD_REPOSITORY, TA_REPOSITORY, CHILD_RESOURCES);
+        Map<String, byte[]> childFiles = new TreeMap<>();
+        childFiles.put("loop.cer", loop.getEncoded());
+        publish(CHILD_REPOSITORY, CHILD_NAME, CHILD_KEY_PAIR, childFiles);
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = validate(ForkJoinPool.commonPool(), result);
+
+        ValidationLocation loopLocation = new ValidationLocation(CHILD_REPOSITORY.resolve("loop.cer"));
+        assertFalse(objects.containsKey(CHILD_REPOSITORY.resolve("loop.cer")));
+        assertTrue(objects.containsKey(TA_REPOSITORY.resolve("child.cer")));
+        assertNotNull(result.getResult(loopLocation, VALIDATOR_CIRCULAR_REFERENCE));
+        assertTrue(result.hasFailureForLocation(loopLocation));
+        assertEquals(1, result.getFailuresForAllLocations().size());
+    }
+
+    @Test
+    public void shouldOnlyReadChangedFilesOfPreviousRun() {
+        Map<URI, CertificateRepositoryObject> previousObjects = validate(ForkJoinPool.commonPool(), ValidationResult.withLocation(TA_LOCATION));
+        Map<String, byte[]> childFiles = new TreeMap<>();
+        childFiles.put("route.roa", roa(CHILD_REPOSITORY.resolve("route.roa"), IpRange.parse("10.1.1.0/24")));
+        publish(CHILD_REPOSITORY, CHILD_NAME, CHILD_KEY_PAIR, childFiles);
+        Set<URI> reads = Collections.synchronizedSet(new HashSet<>());
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = new TopDownValidator(location -> {
+            reads.add(location);
+            return store.get(location);
+        }, ValidationOptions.strictValidation(), ForkJoinPool.commonPool()).validate(TA_LOCATION, trustAnchor, previousObjects, result);
+
+        assertFalse(result.getFailuresForAllLocations().toString(), result.hasFailures());
+        assertEquals(new HashSet<>(Arrays.asList(
+                TA_REPOSITORY.resolve("manifest.mft"),
+                CHILD_REPOSITORY.resolve("manifest.mft"),
+                CHILD_REPOSITORY.resolve("route.roa")
+        )), reads);
+        assertEquals(new ArrayList<>(previousObjects.keySet()), new ArrayList<>(objects.keySet()));
+        assertSame(previousObjects.get(TA_REPOSITORY.resolve("manifest.mft")), objects.get(TA_REPOSITORY.resolve("manifest.mft")));
+        assertSame(previousObjects.get(CHILD_REPOSITORY.resolve("revoked.crl")), objects.get(CHILD_REPOSITORY.resolve("revoked.crl")));
+        assertNotEquals(previousObjects.get(CHILD_REPOSITORY.resolve("route.roa")), objects.get(CHILD_REPOSITORY.resolve("route.roa")));
+
+        ValidationResult fullResult = ValidationResult.withLocation(TA_LOCATION);
+        assertEquals(validate(ForkJoinPool.commonPool(), fullResult), objects);
+        assertEquals(fullResult.getValidatedLocations(), result.getValidatedLocations());
+    }
+
+    @Test
+    public void shouldRejectCaWhenStoreThrows() {
+        Map<String, byte[]> taFiles = new TreeMap<>();
+        taFiles.put("child.cer", child.getEncoded());
+        URI roaLocation = TA_REPOSITORY.resolve("route.roa");
+        taFiles.put("route.roa", roa(roaLocation, TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, IpRange.parse("10.2.0.0/24")));
+        publish(TA_REPOSITORY, TA_NAME, TA_KEY_PAIR, taFiles);
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = new TopDownValidator(location -> {
+            if (location.equals(roaLocation)) {
+                throw new IllegalStateException("store failure");
+            }
+            return store.get(location);
+        }, ValidationOptions.strictValidation(), ForkJoinPool.commonPool()).validate(TA_LOCATION, trustAnchor, result);
+
+        assertEquals(Collections.emptyMap(), objects);
+        assertNotNull(result.getResult(new ValidationLocation(TA_LOCATION), VALIDATOR_OBJECT_PROCESSING_EXCEPTION));
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(TA_LOCATION)));
+        assertFalse(result.getValidatedLocations().contains(new ValidationLocation(CHILD_REPOSITORY.resolve("manifest.mft"))));
+    }
+
+    @Test
+    public void shouldRejectUnchangedObjectOfPreviousRunAgainstChangedParent() {
+        Map<URI, CertificateRepositoryObject> previousObjects = validate(ForkJoinPool.commonPool(), ValidationResult.withLocation(TA_LOCATION));
+        URI roaLocation = CHILD_REPOSITORY.resolve("route.roa");
+        assertTrue(previousObjects.containsKey(roaLocation));
+        // Re-issue the child CA certificate without the resources of the ROA. The child manifest stays the same.
+        child = caCertificate(CHILD_NAME, CHILD_KEY_PAIR, TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, CHILD_REPOSITORY, IpResourceSet.parse("10.1.1.0/24"));
+        Map<String, byte[]> taFiles = new TreeMap<>();
+        taFiles.put("child.cer", child.getEncoded());
+        publish(TA_REPOSITORY, TA_NAME, TA_KEY_PAIR, taFiles);
+        Set<URI> reads = Collections.synchronizedSet(new HashSet<>());
+        ValidationResult result = ValidationResult.withLocation(TA_LOCATION);
+
+        Map<URI, CertificateRepositoryObject> objects = new TopDownValidator(location -> {
+            reads.add(location);
+            return store.get(location);
+        }, ValidationOptions.strictValidation(), ForkJoinPool.commonPool()).validate(TA_LOCATION, trustAnchor, previousObjects, result);
+
+        assertFalse("the reused ROA is not read again", reads.contains(roaLocation));
+        assertFalse(objects.containsKey(roaLocation));
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(roaLocation)));
+        assertEquals(child, objects.get(TA_REPOSITORY.resolve("child.cer")));
+
+        ValidationResult fullResult = ValidationResult.withLocation(TA_LOCATION);
+        assertEquals(validate(ForkJoinPool.commonPool(), fullResult), objects);
+        assertEquals(fullResult.getFailuresForAllLocations(), result.getFailuresForAllLocations());
+    }
+
+    @Test
+    public void shouldGiveSameResultForEveryPoolSize() {
+        Map<String, byte[]> taFiles = new TreeMap<>();
+        for (int i = 0; i < 8; ++i) {
+            URI repository = TA_REPOSITORY.resolve("child" + i + "/");
+            KeyPair keyPair = KeyPairFactoryTest.getKeyPair("child" + i);
+            X500Principal name = new X500Principal("CN=child" + i);
+            IpResourceSet resources = IpResourceSet.parse("10." + i + ".0.0/16");
+            taFiles.put("child" + i + ".cer", caCertificate(name, keyPair, TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, repository, resources).getEncoded());
+
+            Map<String, byte[]> childFiles = new TreeMap<>();
+            childFiles.put("route.roa", roa(repository.resolve("route.roa"), name, keyPair, repository, IpRange.parse("10." + i + ".0.0/24")));
+            // Claims resources of the trust anchor that were not issued to this CA.
+            childFiles.put("invalid.roa", roa(repository.resolve("invalid.roa"), name, keyPair, repository, IpRange.parse("10.255.0.0/24")));
+            publish(repository, name, keyPair, childFiles);
+        }
+        publish(TA_REPOSITORY, TA_NAME, TA_KEY_PAIR, taFiles);
+
+        ValidationResult sequential = ValidationResult.withLocation(TA_LOCATION);
+        ValidationResult parallel = ValidationResult.withLocation(TA_LOCATION);
+        Map<URI, CertificateRepositoryObject> sequentialObjects;
+        Map<URI, CertificateRepositoryObject> parallelObjects;
+        ForkJoinPool sequentialPool = new ForkJoinPool(1);
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+        try {
+            sequentialObjects = validate(sequentialPool, sequential);
+            parallelObjects = validate(parallelPool, parallel);
+        } finally {
+            sequentialPool.shutdown();
+            parallelPool.shutdown();
+        }
+
+        assertEquals(8 * 4 + 2, sequentialObjects.size());
+        assertEquals(new ArrayList<>(sequentialObjects.entrySet()), new ArrayList<>(parallelObjects.entrySet()));
+        assertEquals(8, sequential.getFailuresForAllLocations().size());
+        assertEquals(sequential.getValidatedLocations(), parallel.getValidatedLocations());
+        for (ValidationLocation location : sequential.getValidatedLocations()) {
+            assertEquals(sequential.getAllValidationChecksForLocation(location), parallel.getAllValidationChecksForLocation(location));
+        }
+    }
+
+    private Map<URI, CertificateRepositoryObject> validate(ForkJoinPool pool, ValidationResult result) {
+        return new TopDownValidator(store::get, ValidationOptions.strictValidation(), pool).validate(TA_LOCATION, trustAnchor, result);
+    }
+
+    private void publish(URI repository, X500Principal caName, KeyPair caKeyPair, Map<String, byte[]> files) {
+        X509CrlBuilder crlBuilder = new X509CrlBuilder()
+                .withIssuerDN(caName)
+                .withThisUpdateTime(now.minusMinutes(1))
+                .withNextUpdateTime(now.plusHours(8))
+                .withNumber(BigInteger.ONE)
+                .withAuthorityKeyIdentifier(caKeyPair.getPublic())
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER);
+        byte[] crl = crlBuilder.build(caKeyPair.getPrivate()).getEncoded();
+
+        URI manifestLocation = repository.resolve("manifest.mft");
+        ManifestCmsBuilder manifestBuilder = new ManifestCmsBuilder()
+                .withCertificate(eeCertificate(manifestLocation, caName, caKeyPair, repository, null))
+                .withManifestNumber(BigInteger.ONE)
+                .withThisUpdateTime(now.minusMinutes(1))
+                .withNextUpdateTime(now.plusHours(8))
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER);
+        manifestBuilder.addFile("revoked.crl", crl);
+        store.put(repository.resolve("revoked.crl"), crl);
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            manifestBuilder.addFile(file.getKey(), file.getValue());
+            store.put(repository.resolve(file.getKey()), file.getValue());
+        }
+        store.put(manifestLocation, manifestBuilder.build(EE_KEY_PAIR.getPrivate()).getEncoded());
+    }
+
+    private byte[] roa(URI location, IpRange prefix) {
+        return roa(location, CHILD_NAME, CHILD_KEY_PAIR, CHILD_REPOSITORY, prefix);
+    }
+
+    private byte[] roa(URI location, X500Principal caName, KeyPair caKeyPair, URI caRepository, IpRange prefix) {
+        return new RoaCmsBuilder()
+                .withCertificate(eeCertificate(location, caName, caKeyPair, caRepository, new IpResourceSet(prefix)))
+                .withAsn(Asn.parse("AS64496"))
+                .withPrefixes(Collections.singletonList(new RoaPrefix(prefix)))
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER)
+                .build(EE_KEY_PAIR.getPrivate())
+                .getEncoded();
+    }
+
+    private X509ResourceCertificate caCertificate(X500Principal subject, KeyPair keyPair, X500Principal issuer, KeyPair issuerKeyPair, URI issuerRepository, URI repository, IpResourceSet resources) {
+        X509ResourceCertificateBuilder builder = certificateBuilder(subject, keyPair.getPublic(), issuer, issuerKeyPair, issuerRepository)
+                .withCa(true)
+                .withKeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign)
+                .withResources(resources)
+                .withSubjectInformationAccess(
+                        new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_CA_REPOSITORY, repository),
+                        new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_RPKI_MANIFEST, repository.resolve("manifest.mft"))
+                );
+        return builder.build();
+    }
+
+    private X509ResourceCertificate eeCertificate(URI location, X500Principal issuer, KeyPair issuerKeyPair, URI issuerRepository, IpResourceSet resources) {
+        X509ResourceCertificateBuilder builder = certificateBuilder(new X500Principal("CN=ee"), EE_KEY_PAIR.getPublic(), issuer, issuerKeyPair, issuerRepository)
+                .withCa(false)
+                .withKeyUsage(KeyUsage.digitalSignature)
+                .withSubjectInformationAccess(new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_SIGNED_OBJECT, location));
+        if (resources == null) {
+            builder.withInheritedResourceTypes(EnumSet.allOf(IpResourceType.class));
+        } else {
+            builder.withResources(resources);
+        }
+        return builder.build();
+    }
+
+    private X509ResourceCertificateBuilder certificateBuilder(X500Principal subject, PublicKey publicKey, X500Principal issuer, KeyPair issuerKeyPair, URI issuerRepository) {
+        serial = serial.add(BigInteger.ONE);
+        X509ResourceCertificateBuilder builder = new X509ResourceCertificateBuilder()
+                .withSubjectDN(subject)
+                .withIssuerDN(issuer)
+                .withSerial(serial)
+                .withValidityPeriod(new ValidityPeriod(now.minusMinutes(1), now.plusDays(1)))
+                .withPublicKey(publicKey)
+                .withSigningKeyPair(issuerKeyPair)
+                .withAuthorityKeyIdentifier(true);
+        if (issuerRepository != null) {
+            builder.withCrlDistributionPoints(issuerRepository.resolve("revoked.crl"));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,188 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpAddress;
+import net.ripe.ipresource.IpRange;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParserTest.TEST_ASN;
+import static org.junit.Assert.*;
+
+public class AllowedRouteSetTest {
+
+    private static final AllowedRoute IPV4_16 = new AllowedRoute(Asn.parse("AS3"), IpRange.parse("10.0.0.0/16"), 24);
+    private static final AllowedRoute IPV4_8 = new AllowedRoute(Asn.parse("AS4294967295"), IpRange.parse("10.0.0.0/8"), 8);
+    private static final AllowedRoute IPV4_HIGH = new AllowedRoute(Asn.parse("AS1"), IpRange.parse("200.0.0.0/8"), 32);
+    private static final AllowedRoute IPV6 = new AllowedRoute(Asn.parse("AS2"), IpRange.parse("2001:db8:8000::/33"), 128);
+
+    @Test
+    public void shouldSortAndRemoveDuplicates() {
+        AllowedRouteSet subject = AllowedRouteSet.of(Arrays.asList(IPV6, IPV4_HIGH, IPV4_16, IPV4_8, IPV4_16));
+
+        assertEquals(4, subject.size());
+        assertEquals(3, subject.getIpv4Count());
+        assertEquals(Arrays.asList(IPV4_8, IPV4_16, IPV4_HIGH, IPV6), toList(subject));
+        assertEquals(4294967295L, subject.getAsn(0));
+        assertEquals(10L << 56, subject.getAddressHigh(0));
+        assertEquals(8, subject.getPrefixLength(0));
+        assertEquals(24, subject.getMaximumLength(1));
+        assertEquals(0x20010db880000000L, subject.getAddressHigh(3));
+        assertFalse(subject.isIpv4(3));
+    }
+
+    @Test
+    public void shouldExtractAllowedRoutesFromRoas() {
+        RoaCms roa = RoaCmsTest.createRoaCms(Arrays.asList(
+                new RoaPrefix(IpRange.parse("10.0.0.0/8"), 16),
+                new RoaPrefix(IpRange.parse("2001:db8::/32"))));
+
+        AllowedRouteSet subject = AllowedRouteSet.fromRoas(Arrays.asList(roa, roa));
+
+        assertEquals(AllowedRouteSet.of(AllowedRoute.fromRoas(Collections.singletonList(roa))), subject);
+        assertEquals(Arrays.asList(
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/8"), 16),
+                new AllowedRoute(TEST_ASN, IpRange.parse("2001:db8::/32"), 32)), toList(subject));
+    }
+
+    @Test
+    public void shouldValidateWithTrieLikeThePolicy() {
+        AllowedRouteSet subject = AllowedRouteSet.of(Arrays.asList(IPV6, IPV4_HIGH, IPV4_16, IPV4_8));
+        AllowedRouteTrie trie = AllowedRouteTrie.of(subject);
+        RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+        for (String prefix : Arrays.asList("10.0.0.0/8", "10.0.1.0/24", "10.1.0.0/16", "200.0.0.0/32", "2001:db8:8000::/48", "2001:db8::/48")) {
+            for (String asn : Arrays.asList("AS1", "AS2", "AS3", "AS4294967295")) {
+                AnnouncedRoute route = new AnnouncedRoute(Asn.parse(asn), IpRange.parse(prefix));
+                assertEquals(route.toString(), policy.validateAnnouncedRoute(RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(subject), route), trie.validate(route));
+            }
+        }
+        assertEquals(4, trie.size());
+    }
+
+    @Test
+    public void shouldWriteAndReadFlatBinaryFile() throws IOException {
+        AllowedRouteSet subject = AllowedRouteSet.of(Arrays.asList(IPV6, IPV4_HIGH, IPV4_16, IPV4_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        subject.writeTo(out);
+
+        assertEquals(16 + 4 * 22, out.size());
+        assertEquals(subject, AllowedRouteSet.readFrom(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        AllowedRouteSet.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    @Test
+    public void shouldRemoveRedundantRoutes() {
+        RoaCms first = RoaCmsTest.createRoaCms(Arrays.asList(
+                new RoaPrefix(IpRange.parse("10.0.0.0/22"), 24),
+                new RoaPrefix(IpRange.parse("10.0.1.0/24"), 24),
+                new RoaPrefix(IpRange.parse("10.0.2.0/23"), 23),
+                new RoaPrefix(IpRange.parse("10.0.4.0/24"), 26)));
+        RoaCms second = RoaCmsTest.createRoaCms(Arrays.asList(
+                new RoaPrefix(IpRange.parse("10.0.0.0/22"), 24),
+                new RoaPrefix(IpRange.parse("10.0.4.0/24"), 25)));
+        AllowedRoute otherAsn = new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.1.0/24"), 24);
+        List<AllowedRoute> allowedRoutes = new ArrayList<>(AllowedRoute.fromRoas(Arrays.asList(first, second)));
+        allowedRoutes.add(otherAsn);
+
+        AllowedRouteSet subject = AllowedRouteSet.of(allowedRoutes).minimize();
+
+        assertEquals(Arrays.asList(
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/22"), 24),
+                otherAsn,
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.4.0/24"), 26)), toList(subject));
+    }
+
+    @Test
+    public void shouldMergeSiblingsIntoParent() {
+        AllowedRouteSet subject = AllowedRouteSet.of(Arrays.asList(
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/23"), 23),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.1.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.2.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.3.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.2.0/23"), 23),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/22"), 22),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.8.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.9.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("2001:db8::/33"), 48),
+                new AllowedRoute(TEST_ASN, IpRange.parse("2001:db8:8000::/33"), 48),
+                new AllowedRoute(TEST_ASN, IpRange.parse("2001:db8::/32"), 32))).minimize();
+
+        assertEquals("siblings without parent are not merged", Arrays.asList(
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/22"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.8.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.9.0/24"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("2001:db8::/32"), 48)), toList(subject));
+    }
+
+    @Test
+    public void shouldNotChangeRouteOriginValidationOutcomeWhenMinimized() {
+        Random random = new Random(18);
+        List<AllowedRoute> allowedRoutes = new ArrayList<>();
+        for (int i = 0; i < 3000; ++i) {
+            IpRange prefix = random.nextBoolean() ? AllowedRouteTrieTest.randomIpv4Prefix(random) : AllowedRouteTrieTest.randomIpv6Prefix(random);
+            int bitSize = prefix.getType().getBitSize();
+            int maximumLength = prefix.getPrefixLength() + random.nextInt(Math.min(4, bitSize - prefix.getPrefixLength()) + 1);
+            Asn asn = AllowedRouteTrieTest.randomAsn(random);
+            allowedRoutes.add(new AllowedRoute(asn, prefix, maximumLength));
+            if (prefix.getPrefixLength() < bitSize && random.nextBoolean()) {
+                // Add the children, so some siblings can be merged.
+                for (IpRange child : halves(prefix)) {
+                    allowedRoutes.add(new AllowedRoute(asn, child, Math.min(bitSize, Math.max(maximumLength, child.getPrefixLength()) + random.nextInt(2))));
+                }
+            }
+        }
+        AllowedRouteSet original = AllowedRouteSet.of(allowedRoutes);
+        AllowedRouteSet subject = original.minimize();
+        assertTrue(subject.size() < original.size());
+        assertEquals("idempotent", subject, subject.minimize());
+
+        AllowedRouteTrie originalTrie = AllowedRouteTrie.of(original);
+        AllowedRouteTrie minimizedTrie = AllowedRouteTrie.of(subject);
+        for (int i = 0; i < 50000; ++i) {
+            AllowedRoute allowed = allowedRoutes.get(random.nextInt(allowedRoutes.size()));
+            Asn asn = random.nextBoolean() ? allowed.getAsn() : AllowedRouteTrieTest.randomAsn(random);
+            IpRange prefix = random.nextInt(4) == 0
+                    ? (random.nextBoolean() ? AllowedRouteTrieTest.randomIpv4Prefix(random) : AllowedRouteTrieTest.randomIpv6Prefix(random))
+                    : AllowedRouteTrieTest.moreSpecific(random, allowed.getPrefix());
+            AnnouncedRoute route = new AnnouncedRoute(asn, prefix);
+            assertEquals(route.toString(), outcome(originalTrie.validate(route)), outcome(minimizedTrie.validate(route)));
+        }
+    }
+
+    private static List<IpRange> halves(IpRange prefix) {
+        IpRange lower = IpRange.prefix((IpAddress) prefix.getStart(), prefix.getPrefixLength() + 1);
+        IpRange upper = IpRange.prefix((IpAddress) lower.getEnd().successor(), prefix.getPrefixLength() + 1);
+        return Arrays.asList(lower, upper);
+    }
+
+    /**
+     * The RFC 6811 outcome: valid, invalid or not found.
+     */
+    private static RouteValidityState outcome(RouteValidityState state) {
+        return state == RouteValidityState.INVALID_LENGTH ? RouteValidityState.INVALID_ASN : state;
+    }
+
+    private static List<AllowedRoute> toList(AllowedRouteSet set) {
+        List<AllowedRoute> result = new ArrayList<>();
+        set.forEach(result::add);
+        return result;
+    }
+}
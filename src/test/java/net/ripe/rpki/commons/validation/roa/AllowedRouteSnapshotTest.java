@@ -0,0 +1,160 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteTrieTest.*;
+import static org.junit.Assert.*;
+
+public class AllowedRouteSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    @Test
+    public void shouldWriteAndMapSnapshot() throws IOException {
+        AllowedRouteSet allowedRoutes = AllowedRouteSet.of(Arrays.asList(
+                new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/8"), 16),
+                new AllowedRoute(Asn.parse("AS4294967295"), IpRange.parse("10.1.0.0/16"), 24),
+                new AllowedRoute(Asn.parse("AS3"), IpRange.parse("2001:db8::/32"), 48)));
+        Path file = temporaryFolder.getRoot().toPath().resolve("vrps.snapshot");
+
+        AllowedRouteSnapshot.write(allowedRoutes, file);
+        AllowedRouteSnapshot subject = AllowedRouteSnapshot.map(file);
+
+        assertEquals(3, subject.size());
+        assertEquals(allowedRoutes, AllowedRouteSet.of(subject));
+        assertEquals(32 + 3 * 24 + AllowedRouteTrie.of(allowedRoutes).keyLength.length * 32, Files.size(file));
+        assertEquals(RouteValidityState.VALID, policy.validateAnnouncedRoute(subject, route("AS1", "10.2.0.0/16")));
+        assertEquals(RouteValidityState.VALID, policy.validateAnnouncedRoute(subject, route("AS4294967295", "10.1.2.0/24")));
+        assertEquals(RouteValidityState.INVALID_LENGTH, policy.validateAnnouncedRoute(subject, route("AS1", "10.2.0.0/24")));
+        assertEquals(RouteValidityState.INVALID_ASN, policy.validateAnnouncedRoute(subject, route("AS1", "2001:db8::/32")));
+        assertEquals(RouteValidityState.UNKNOWN, policy.validateAnnouncedRoute(subject, route("AS1", "11.0.0.0/8")));
+        assertEquals("only the snapshot is left", Collections.singletonList(file), listFiles());
+    }
+
+    @Test
+    public void shouldMapEmptySnapshot() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("vrps.snapshot");
+
+        AllowedRouteSnapshot.write(AllowedRouteSet.of(Collections.emptyList()), file);
+        AllowedRouteSnapshot subject = AllowedRouteSnapshot.map(file);
+
+        assertEquals(0, subject.size());
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS1", "10.0.0.0/8")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS1", "::/0")));
+    }
+
+    @Test
+    public void shouldValidateLikeNestedIntervalMapForRandomRoutes() throws IOException {
+        Random random = new Random(15);
+        List<AllowedRoute> routes = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            IpRange prefix = random.nextBoolean() ? randomIpv4Prefix(random) : randomIpv6Prefix(random);
+            int bitSize = prefix.getType().getBitSize();
+            routes.add(new AllowedRoute(randomAsn(random), prefix, prefix.getPrefixLength() + random.nextInt(bitSize - prefix.getPrefixLength() + 1)));
+        }
+        AllowedRouteSet allowedRoutes = AllowedRouteSet.of(routes);
+        NestedIntervalMap<IpResource, List<AllowedRoute>> map = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+        Path file = temporaryFolder.getRoot().toPath().resolve("vrps.snapshot");
+        AllowedRouteSnapshot.write(allowedRoutes, file);
+        AllowedRouteSnapshot subject = AllowedRouteSnapshot.map(file);
+
+        for (int i = 0; i < 20000; ++i) {
+            AnnouncedRoute announcedRoute;
+            if (random.nextBoolean()) {
+                AllowedRoute allowed = routes.get(random.nextInt(routes.size()));
+                announcedRoute = new AnnouncedRoute(random.nextBoolean() ? allowed.getAsn() : randomAsn(random), moreSpecific(random, allowed.getPrefix()));
+            } else {
+                announcedRoute = new AnnouncedRoute(randomAsn(random), random.nextBoolean() ? randomIpv4Prefix(random) : randomIpv6Prefix(random));
+            }
+            assertEquals(announcedRoute.toString(), policy.validateAnnouncedRoute(map, announcedRoute), policy.validateAnnouncedRoute(subject, announcedRoute));
+        }
+    }
+
+    @Test
+    public void shouldKeepMappedSnapshotWhenReplaced() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("vrps.snapshot");
+        AllowedRouteSnapshot.write(AllowedRouteSet.of(Collections.singletonList(new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/8"), 8))), file);
+        AllowedRouteSnapshot subject = AllowedRouteSnapshot.map(file);
+
+        AllowedRouteSnapshot.write(AllowedRouteSet.of(Collections.emptyList()), file);
+
+        assertEquals(RouteValidityState.VALID, subject.validate(route("AS1", "10.0.0.0/8")));
+        assertEquals(0, AllowedRouteSnapshot.map(file).size());
+    }
+
+    @Test
+    public void shouldRejectOtherFiles() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        AllowedRouteSnapshot.write(AllowedRouteSet.of(Collections.singletonList(new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/8"), 8))), file);
+        byte[] content = Files.readAllBytes(file);
+
+        assertRejected(file, new byte[0]);
+        assertRejected(file, Arrays.copyOf(content, content.length - 1));
+        byte[] otherVersion = content.clone();
+        otherVersion[7] = 2;
+        assertRejected(file, otherVersion);
+        byte[] otherMagic = content.clone();
+        otherMagic[0] = 0;
+        assertRejected(file, otherMagic);
+    }
+
+    @Test
+    public void shouldRejectCorruptNodes() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        AllowedRouteSnapshot.write(AllowedRouteSet.of(Collections.singletonList(new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/8"), 8))), file);
+        byte[] content = Files.readAllBytes(file);
+        int node = 32 + 24;
+
+        byte[] childOutOfRange = content.clone();
+        ByteBuffer.wrap(childOutOfRange).putInt(node + 16, 5);
+        assertRejected(file, childOutOfRange);
+        byte[] childLoop = content.clone();
+        ByteBuffer.wrap(childLoop).putInt(node + 20, 0);
+        assertRejected(file, childLoop);
+        byte[] routeOutOfRange = content.clone();
+        ByteBuffer.wrap(routeOutOfRange).putInt(node + 24, 2);
+        assertRejected(file, routeOutOfRange);
+        byte[] prefixLengthOutOfRange = content.clone();
+        prefixLengthOutOfRange[node + 28] = (byte) 129;
+        assertRejected(file, prefixLengthOutOfRange);
+    }
+
+    private void assertRejected(Path file, byte[] content) throws IOException {
+        Files.write(file, content);
+        try {
+            AllowedRouteSnapshot.map(file);
+            fail("snapshot accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("snapshot"));
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> result = new ArrayList<>();
+        Files.list(temporaryFolder.getRoot().toPath()).forEach(result::add);
+        return result;
+    }
+
+    private static AnnouncedRoute route(String asn, String prefix) {
+        return new AnnouncedRoute(Asn.parse(asn), IpRange.parse(prefix));
+    }
+}
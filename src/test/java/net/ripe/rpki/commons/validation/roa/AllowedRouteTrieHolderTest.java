@@ -0,0 +1,78 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class AllowedRouteTrieHolderTest {
+
+    private static final AnnouncedRoute ROUTE = new AnnouncedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/16"));
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    @Test
+    public void shouldValidateAgainstPublishedVersion() {
+        AllowedRouteTrie first = trie("AS1", 16);
+        AllowedRouteTrie second = trie("AS2", 16);
+        AllowedRouteTrieHolder subject = new AllowedRouteTrieHolder(first);
+        assertEquals(RouteValidityState.VALID, policy.validateAnnouncedRoute(subject, ROUTE));
+
+        assertSame(first, subject.publish(second));
+
+        assertSame(second, subject.get());
+        assertEquals(RouteValidityState.INVALID_ASN, policy.validateAnnouncedRoute(subject, ROUTE));
+        assertEquals("previous version is unchanged", RouteValidityState.VALID, first.validate(ROUTE));
+    }
+
+    @Test
+    public void shouldOnlyExposeCompleteVersionsToConcurrentReaders() throws Exception {
+        List<AllowedRouteTrie> versions = new ArrayList<>();
+        versions.add(trie("AS1", 16));
+        versions.add(trie("AS2", 16));
+        versions.add(trie("AS1", 8));
+        AllowedRouteTrieHolder subject = new AllowedRouteTrieHolder(versions.get(0));
+        Set<RouteValidityState> seen = ConcurrentHashMap.newKeySet();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService readers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                futures.add(readers.submit(() -> {
+                    while (!done.get()) {
+                        seen.add(policy.validateAnnouncedRoute(subject, ROUTE));
+                    }
+                }));
+            }
+            for (int i = 0; i < 3000; ++i) {
+                subject.publish(versions.get(i % versions.size()));
+                Thread.yield();
+            }
+            done.set(true);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+
+        assertTrue(seen.toString(), EnumSet.of(RouteValidityState.VALID, RouteValidityState.INVALID_ASN, RouteValidityState.INVALID_LENGTH).containsAll(seen));
+    }
+
+    private static AllowedRouteTrie trie(String asn, int maximumLength) {
+        return AllowedRouteTrie.of(Collections.singletonList(new AllowedRoute(Asn.parse(asn), IpRange.parse("10.0.0.0/8"), maximumLength)));
+    }
+}
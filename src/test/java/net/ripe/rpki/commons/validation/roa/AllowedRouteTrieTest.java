@@ -0,0 +1,106 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpAddress;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AllowedRouteTrieTest {
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    @Test
+    public void shouldValidateAgainstCoveringAllowedRoutes() {
+        AllowedRouteTrie subject = AllowedRouteTrie.of(Arrays.asList(
+                new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/8"), 16),
+                new AllowedRoute(Asn.parse("AS2"), IpRange.parse("10.1.0.0/16"), 24),
+                new AllowedRoute(Asn.parse("AS3"), IpRange.parse("2001:db8::/32"), 48)));
+
+        assertEquals(3, subject.size());
+        assertEquals(RouteValidityState.VALID, subject.validate(route("AS1", "10.0.0.0/8")));
+        assertEquals(RouteValidityState.VALID, subject.validate(route("AS1", "10.2.0.0/16")));
+        assertEquals(RouteValidityState.INVALID_LENGTH, subject.validate(route("AS1", "10.2.0.0/24")));
+        assertEquals(RouteValidityState.VALID, subject.validate(route("AS2", "10.1.2.0/24")));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validate(route("AS2", "10.2.0.0/16")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS1", "0.0.0.0/0")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS1", "11.0.0.0/8")));
+        assertEquals(RouteValidityState.VALID, subject.validate(route("AS3", "2001:db8:1::/48")));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validate(route("AS1", "2001:db8::/32")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS3", "2001:db9::/32")));
+    }
+
+    @Test
+    public void shouldValidateWithoutAllowedRoutes() {
+        AllowedRouteTrie subject = AllowedRouteTrie.of(Collections.emptyList());
+
+        assertEquals(0, subject.size());
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS1", "10.0.0.0/8")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(route("AS1", "::/0")));
+    }
+
+    @Test
+    public void shouldValidateLikeNestedIntervalMapForRandomRoutes() {
+        Random random = new Random(7);
+        List<AllowedRoute> allowedRoutes = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            IpRange prefix = random.nextBoolean() ? randomIpv4Prefix(random) : randomIpv6Prefix(random);
+            int bitSize = prefix.getType().getBitSize();
+            allowedRoutes.add(new AllowedRoute(randomAsn(random), prefix, prefix.getPrefixLength() + random.nextInt(bitSize - prefix.getPrefixLength() + 1)));
+        }
+        NestedIntervalMap<IpResource, List<AllowedRoute>> map = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+        AllowedRouteTrie subject = AllowedRouteTrie.of(allowedRoutes);
+
+        for (int i = 0; i < 20000; ++i) {
+            AnnouncedRoute announcedRoute;
+            if (random.nextBoolean()) {
+                AllowedRoute allowed = allowedRoutes.get(random.nextInt(allowedRoutes.size()));
+                announcedRoute = new AnnouncedRoute(random.nextBoolean() ? allowed.getAsn() : randomAsn(random), moreSpecific(random, allowed.getPrefix()));
+            } else {
+                announcedRoute = new AnnouncedRoute(randomAsn(random), random.nextBoolean() ? randomIpv4Prefix(random) : randomIpv6Prefix(random));
+            }
+            assertEquals(announcedRoute.toString(), policy.validateAnnouncedRoute(map, announcedRoute), policy.validateAnnouncedRoute(subject, announcedRoute));
+        }
+    }
+
+    private static AnnouncedRoute route(String asn, String prefix) {
+        return new AnnouncedRoute(Asn.parse(asn), IpRange.parse(prefix));
+    }
+
+    static Asn randomAsn(Random random) {
+        // A small range of ASNs, so routes regularly have the ASN of a covering allowed route.
+        return new Asn(random.nextInt(8) == 0 ? 4200000000L + random.nextInt(4) : random.nextInt(4));
+    }
+
+    // Prefixes from a small part of the address space, so allowed routes are nested.
+    static IpRange randomIpv4Prefix(Random random) {
+        int prefixLength = 8 + random.nextInt(25);
+        long address = (10L << 24 | random.nextInt(4) << 16 | random.nextInt(1 << 16)) & (0xffffffffL << (32 - prefixLength));
+        return IpRange.prefix(new Ipv4Address(address), prefixLength);
+    }
+
+    static IpRange randomIpv6Prefix(Random random) {
+        int prefixLength = 16 + random.nextInt(113);
+        BigInteger address = BigInteger.valueOf(0x2001_0db8L + random.nextInt(2)).shiftLeft(96).or(new BigInteger(96, random));
+        BigInteger mask = BigInteger.ONE.shiftLeft(prefixLength).subtract(BigInteger.ONE).shiftLeft(128 - prefixLength);
+        return IpRange.prefix(new Ipv6Address(address.and(mask)), prefixLength);
+    }
+
+    static IpRange moreSpecific(Random random, IpRange prefix) {
+        int bitSize = prefix.getType().getBitSize();
+        int prefixLength = prefix.getPrefixLength() + random.nextInt(Math.min(8, bitSize - prefix.getPrefixLength()) + 1);
+        return IpRange.prefix((IpAddress) prefix.getStart(), prefixLength);
+    }
+}
@@ -0,0 +1,119 @@
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class IncrementalRouteOriginValidatorTest {
+
+    private static final Asn ASN_1 = Asn.parse("AS1");
+    private static final Asn ASN_2 = Asn.parse("AS2");
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    @Test
+    public void shouldReportRoutesChangedByAllowedRouteUpdates() {
+        AnnouncedRoute covered = new AnnouncedRoute(ASN_1, IpRange.parse("10.1.0.0/16"));
+        AnnouncedRoute unrelated = new AnnouncedRoute(ASN_1, IpRange.parse("11.0.0.0/8"));
+        AllowedRoute allowed = new AllowedRoute(ASN_1, IpRange.parse("10.0.0.0/8"), 16);
+        IncrementalRouteOriginValidator subject = new IncrementalRouteOriginValidator(Collections.emptyList(), asList(covered, unrelated));
+        assertEquals(RouteValidityState.UNKNOWN, subject.getValidityState(covered));
+
+        assertEquals(Collections.singletonMap(covered, RouteValidityState.VALID), subject.update(asList(allowed), Collections.emptyList()));
+        assertEquals(RouteValidityState.VALID, subject.getValidityState(covered));
+        assertEquals(RouteValidityState.UNKNOWN, subject.getValidityState(unrelated));
+
+        AllowedRoute otherAsn = new AllowedRoute(ASN_2, IpRange.parse("10.1.0.0/16"), 16);
+        assertEquals("still valid", Collections.emptyMap(), subject.update(asList(otherAsn), Collections.emptyList()));
+
+        assertEquals(Collections.singletonMap(covered, RouteValidityState.INVALID_ASN), subject.update(Collections.emptyList(), asList(allowed)));
+        assertEquals("removing an absent route changes nothing", Collections.emptyMap(), subject.update(Collections.emptyList(), asList(allowed)));
+    }
+
+    @Test
+    public void shouldValidateAnnouncedAndForgetWithdrawnRoutes() {
+        AnnouncedRoute route = new AnnouncedRoute(ASN_1, IpRange.parse("10.1.0.0/24"));
+        IncrementalRouteOriginValidator subject = new IncrementalRouteOriginValidator(asList(new AllowedRoute(ASN_1, IpRange.parse("10.0.0.0/8"), 16)), Collections.emptyList());
+
+        assertEquals(RouteValidityState.INVALID_LENGTH, subject.announce(route));
+        subject.withdraw(route);
+
+        assertNull(subject.getValidityState(route));
+        assertEquals(Collections.emptyMap(), subject.update(asList(new AllowedRoute(ASN_1, IpRange.parse("10.1.0.0/24"), 24)), Collections.emptyList()));
+    }
+
+    @Test
+    public void shouldReportExactlyTheChangesOfFullRevalidation() {
+        Random random = new Random(13);
+        List<AllowedRoute> allowedRoutes = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            allowedRoutes.add(randomAllowedRoute(random));
+        }
+        List<AnnouncedRoute> announcedRoutes = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            int prefixLength = 8 + random.nextInt(17);
+            announcedRoutes.add(new AnnouncedRoute(new Asn(random.nextInt(3)), randomPrefix(random, prefixLength)));
+        }
+        IncrementalRouteOriginValidator subject = new IncrementalRouteOriginValidator(allowedRoutes, announcedRoutes);
+        Map<AnnouncedRoute, RouteValidityState> states = validateAll(allowedRoutes, announcedRoutes);
+        assertEquals(states, subject.getValidityStates());
+
+        for (int update = 0; update < 50; ++update) {
+            List<AllowedRoute> added = new ArrayList<>();
+            List<AllowedRoute> removed = new ArrayList<>();
+            for (int i = random.nextInt(5); i > 0; --i) {
+                removed.add(allowedRoutes.get(random.nextInt(allowedRoutes.size())));
+            }
+            for (int i = random.nextInt(5); i > 0; --i) {
+                added.add(randomAllowedRoute(random));
+            }
+            removed.forEach(allowedRoutes::remove);
+            allowedRoutes.addAll(added);
+
+            Map<AnnouncedRoute, RouteValidityState> changed = subject.update(added, removed);
+
+            Map<AnnouncedRoute, RouteValidityState> newStates = validateAll(allowedRoutes, announcedRoutes);
+            Map<AnnouncedRoute, RouteValidityState> expectedChanges = new HashMap<>();
+            newStates.forEach((route, state) -> {
+                if (states.get(route) != state) {
+                    expectedChanges.put(route, state);
+                }
+            });
+            assertEquals(expectedChanges, changed);
+            assertEquals(newStates, subject.getValidityStates());
+            states.putAll(newStates);
+        }
+    }
+
+    private Map<AnnouncedRoute, RouteValidityState> validateAll(List<AllowedRoute> allowedRoutes, List<AnnouncedRoute> announcedRoutes) {
+        NestedIntervalMap<IpResource, List<AllowedRoute>> map = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+        Map<AnnouncedRoute, RouteValidityState> result = new HashMap<>();
+        for (AnnouncedRoute announcedRoute : announcedRoutes) {
+            result.put(announcedRoute, policy.validateAnnouncedRoute(map, announcedRoute));
+        }
+        return result;
+    }
+
+    private static AllowedRoute randomAllowedRoute(Random random) {
+        int prefixLength = 8 + random.nextInt(13);
+        return new AllowedRoute(new Asn(random.nextInt(3)), randomPrefix(random, prefixLength), prefixLength + random.nextInt(5));
+    }
+
+    private static IpRange randomPrefix(Random random, int prefixLength) {
+        long address = (10L << 24 | random.nextInt(1 << 24)) & (0xffffffffL << (32 - prefixLength));
+        return IpRange.prefix(new Ipv4Address(address), prefixLength);
+    }
+}
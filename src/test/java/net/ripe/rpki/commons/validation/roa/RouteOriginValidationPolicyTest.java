@@ -10,9 +10,13 @@ import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 import static net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParserTest.*;
@@ -111,6 +115,42 @@ public class RouteOriginValidationPolicyTest {
 
     }
 
+    @Test
+    public void should_validate_announced_routes_in_bulk_in_input_order() {
+        List<AllowedRoute> allowedRoutes = Arrays.asList(
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/8"), 16),
+                new AllowedRoute(TEST_ASN, IpRange.parse("2001:db8::/32"), 32));
+        AllowedRouteTrie trie = AllowedRouteTrie.of(allowedRoutes);
+        List<AnnouncedRoute> announcedRoutes = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            announcedRoutes.add(new AnnouncedRoute(i % 3 == 0 ? TEST_ASN : new Asn(i), IpRange.parse("10." + (i % 256) + ".0.0/" + (i % 2 == 0 ? 16 : 24))));
+            announcedRoutes.add(new AnnouncedRoute(TEST_ASN, IpRange.parse(i % 2 == 0 ? "2001:db8::/32" : "2001:db9::/32")));
+        }
+        NestedIntervalMap<IpResource, List<AllowedRoute>> map = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<RouteValidityState> states = subject.validateAnnouncedRoutes(trie, announcedRoutes, pool);
+            Map<RouteValidityState, Long> counts = subject.countAnnouncedRoutes(trie, announcedRoutes, pool);
+
+            Map<RouteValidityState, Long> expectedCounts = new EnumMap<>(RouteValidityState.class);
+            for (RouteValidityState state : RouteValidityState.values()) {
+                expectedCounts.put(state, 0L);
+            }
+            assertEquals(announcedRoutes.size(), states.size());
+            for (int i = 0; i < announcedRoutes.size(); ++i) {
+                RouteValidityState expected = subject.validateAnnouncedRoute(map, announcedRoutes.get(i));
+                assertEquals(expected, states.get(i));
+                expectedCounts.merge(expected, 1L, Long::sum);
+            }
+            assertEquals(expectedCounts, counts);
+            assertTrue(counts.get(RouteValidityState.VALID) > 0 && counts.get(RouteValidityState.INVALID_ASN) > 0
+                    && counts.get(RouteValidityState.INVALID_LENGTH) > 0 && counts.get(RouteValidityState.UNKNOWN) > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     private void testValidatityDetermination(String roaIpPrefix, int roaMaxLength, Asn routeAsn, String routePrefix, RouteValidityState expectedResult) {
         NestedIntervalMap<IpResource, List<AllowedRoute>> rtrPrefixes = roa(new RoaPrefix(IpRange.parse(roaIpPrefix), roaMaxLength));
         AnnouncedRoute route = new AnnouncedRoute(routeAsn, IpRange.parse(routePrefix));